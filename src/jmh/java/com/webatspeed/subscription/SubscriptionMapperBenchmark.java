@@ -0,0 +1,52 @@
+package com.webatspeed.subscription;
+
+import com.webatspeed.subscription.service.TemplateName;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import software.amazon.awssdk.services.sesv2.model.SendBulkEmailRequest;
+import software.amazon.awssdk.services.sesv2.model.Template;
+import software.amazon.awssdk.services.sesv2.model.TestRenderEmailTemplateRequest;
+
+@State(Scope.Benchmark)
+public class SubscriptionMapperBenchmark {
+
+  private static final String FROM = "sender@email.local";
+
+  private final SubscriptionMapper mapper = new SubscriptionMapper();
+
+  private String to;
+
+  private String token;
+
+  private Map<String, String> tokensByRecipient;
+
+  @Setup
+  public void setUp() {
+    to = "recipient@email.local";
+    token = UUID.randomUUID().toString();
+    tokensByRecipient = new LinkedHashMap<>();
+    for (int i = 0; i < 50; i++) {
+      tokensByRecipient.put("recipient" + i + "@email.local", UUID.randomUUID().toString());
+    }
+  }
+
+  @Benchmark
+  public Template templateOf() {
+    return mapper.templateOf(to, token, TemplateName.PLEASE_CONFIRM);
+  }
+
+  @Benchmark
+  public TestRenderEmailTemplateRequest renderRequestOf() {
+    return mapper.renderRequestOf(to, token, TemplateName.UPDATED_CV);
+  }
+
+  @Benchmark
+  public SendBulkEmailRequest bulkRequestOf() {
+    return mapper.bulkRequestOf(FROM, TemplateName.UPDATED_CV, tokensByRecipient);
+  }
+}
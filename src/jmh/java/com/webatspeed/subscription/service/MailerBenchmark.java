@@ -0,0 +1,215 @@
+package com.webatspeed.subscription.service;
+
+import com.webatspeed.subscription.SubscriptionMapper;
+import com.webatspeed.subscription.config.MailConfiguration;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.util.FileSystemUtils;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.sesv2.SesV2AsyncClient;
+import software.amazon.awssdk.services.sesv2.SesV2Client;
+import software.amazon.awssdk.services.sesv2.model.EmailTemplateContent;
+import software.amazon.awssdk.services.sesv2.model.GetEmailTemplateRequest;
+import software.amazon.awssdk.services.sesv2.model.GetEmailTemplateResponse;
+import software.amazon.awssdk.services.sesv2.model.SendEmailRequest;
+import software.amazon.awssdk.services.sesv2.model.SendEmailResponse;
+import software.amazon.awssdk.services.sesv2.model.TestRenderEmailTemplateRequest;
+import software.amazon.awssdk.services.sesv2.model.TestRenderEmailTemplateResponse;
+
+@State(Scope.Benchmark)
+public class MailerBenchmark {
+
+  private static final String TO = "recipient@email.local";
+
+  private static final String RENDERED_TEMPLATE =
+      """
+      Subject: A Subject
+      MIME-Version: 1.0
+      Content-Type: multipart/alternative; boundary="b"
+
+      --b
+      Content-Type: text/plain; charset=UTF-8
+
+      Content1
+      --b--
+      """;
+
+  @Param({"0", "1", "3"})
+  public int attachmentCount;
+
+  @Param({"65536", "1048576"})
+  public int attachmentSize;
+
+  @Param({"LOCAL", "SES"})
+  public TemplateRendering templateRendering;
+
+  private Path attachmentDirectory;
+
+  private Mailer mailer;
+
+  private String token;
+
+  private Blackhole blackhole;
+
+  @Setup
+  public void setUp(Blackhole blackhole) throws IOException {
+    this.blackhole = blackhole;
+    attachmentDirectory = Files.createTempDirectory("attachments");
+    var mailConfiguration = new MailConfiguration();
+    mailConfiguration.setDefaultSender("sender@email.local");
+    mailConfiguration.setAttachmentBucket("attachments");
+    mailConfiguration.setAttachmentStore(attachmentDirectory);
+    mailConfiguration.setAttachmentTtl(Duration.ofDays(1));
+    mailConfiguration.setTemplateTtl(Duration.ofDays(1));
+    mailConfiguration.setTemplateRendering(templateRendering);
+
+    var mapper = new SubscriptionMapper();
+    var emailClient = new StubEmailClient();
+    var metrics = new SubscriptionMetrics(new SimpleMeterRegistry());
+    var templateCache = new TemplateCache(emailClient, mailConfiguration, mapper);
+    var attachmentCache =
+        new AttachmentCache(new StubStorageClient(), mailConfiguration, mapper, metrics);
+    var rateLimiterRegistry =
+        RateLimiterRegistry.of(
+            RateLimiterConfig.custom()
+                .limitForPeriod(Integer.MAX_VALUE)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .build());
+    mailer =
+        new Mailer(
+            emailClient,
+            new StubAsyncEmailClient(),
+            attachmentCache,
+            templateCache,
+            new TemplateRenderer(templateCache, mailConfiguration),
+            new MessageAssembler(new EncodedAttachmentStore(mailConfiguration)),
+            mailConfiguration,
+            mapper,
+            rateLimiterRegistry,
+            new SendRateController(emailClient, rateLimiterRegistry, new SimpleMeterRegistry()),
+            metrics);
+    token = UUID.randomUUID().toString();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    FileSystemUtils.deleteRecursively(attachmentDirectory);
+  }
+
+  @Benchmark
+  public void emailCv() {
+    mailer.emailCv(TO, token, false);
+  }
+
+  private final class StubEmailClient implements SesV2Client {
+
+    private final GetEmailTemplateResponse templateResponse =
+        GetEmailTemplateResponse.builder()
+            .templateContent(
+                EmailTemplateContent.builder()
+                    .subject("Updated CV")
+                    .text("Hello {{username}},\n" + "x".repeat(1_000))
+                    .html("<p>" + "y".repeat(2_000) + "{{token}}</p>")
+                    .build())
+            .build();
+
+    private final TestRenderEmailTemplateResponse renderResponse =
+        TestRenderEmailTemplateResponse.builder().renderedTemplate(RENDERED_TEMPLATE).build();
+
+    private final SendEmailResponse sendResponse = SendEmailResponse.builder().build();
+
+    @Override
+    public GetEmailTemplateResponse getEmailTemplate(GetEmailTemplateRequest request) {
+      return templateResponse;
+    }
+
+    @Override
+    public TestRenderEmailTemplateResponse testRenderEmailTemplate(
+        TestRenderEmailTemplateRequest request) {
+      return renderResponse;
+    }
+
+    @Override
+    public SendEmailResponse sendEmail(SendEmailRequest request) {
+      blackhole.consume(request);
+      return sendResponse;
+    }
+
+    @Override
+    public String serviceName() {
+      return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {}
+  }
+
+  private static final class StubAsyncEmailClient implements SesV2AsyncClient {
+
+    @Override
+    public String serviceName() {
+      return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {}
+  }
+
+  private final class StubStorageClient implements S3Client {
+
+    private final List<S3Object> objects = new ArrayList<>();
+
+    private final List<ResponseBytes<GetObjectResponse>> contents = new ArrayList<>();
+
+    private StubStorageClient() {
+      var random = new Random(42);
+      var response = GetObjectResponse.builder().contentType("application/pdf").build();
+      for (int i = 0; i < attachmentCount; i++) {
+        var content = new byte[attachmentSize];
+        random.nextBytes(content);
+        objects.add(S3Object.builder().key("cv" + i + ".pdf").eTag("etag" + i).build());
+        contents.add(ResponseBytes.fromByteArray(response, content));
+      }
+    }
+
+    @Override
+    public ListObjectsV2Response listObjectsV2(ListObjectsV2Request request) {
+      return ListObjectsV2Response.builder().contents(objects).isTruncated(false).build();
+    }
+
+    @Override
+    public ResponseBytes<GetObjectResponse> getObjectAsBytes(GetObjectRequest request) {
+      return contents.get(Integer.parseInt(request.key().replaceAll("\\D", "")));
+    }
+
+    @Override
+    public String serviceName() {
+      return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {}
+  }
+}
@@ -0,0 +1,96 @@
+package com.webatspeed.subscription.service;
+
+import com.webatspeed.subscription.config.MailConfiguration;
+import jakarta.mail.MessagingException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.util.FileSystemUtils;
+import software.amazon.awssdk.services.sesv2.model.RawMessage;
+
+@State(Scope.Benchmark)
+public class MessageAssemblyBenchmark {
+
+  private static final String FROM = "sender@email.local";
+
+  private static final String TO = "recipient@email.local";
+
+  @Param({"0", "1", "3"})
+  public int attachmentCount;
+
+  @Param({"65536", "1048576"})
+  public int attachmentSize;
+
+  private Path attachmentDirectory;
+
+  private EncodedAttachmentStore attachmentStore;
+
+  private MessageAssembler assembler;
+
+  private List<Attachment> attachments;
+
+  private MessageSkeleton skeleton;
+
+  private CompiledTemplate text;
+
+  private CompiledTemplate html;
+
+  private String token;
+
+  @Setup
+  public void setUp() throws IOException, MessagingException {
+    attachmentDirectory = Files.createTempDirectory("attachments");
+    var mailConfiguration = new MailConfiguration();
+    mailConfiguration.setAttachmentStore(attachmentDirectory);
+    attachmentStore = new EncodedAttachmentStore(mailConfiguration);
+    assembler = new MessageAssembler(attachmentStore);
+
+    var random = new Random(42);
+    attachments = new ArrayList<>();
+    for (int i = 0; i < attachmentCount; i++) {
+      var content = new byte[attachmentSize];
+      random.nextBytes(content);
+      attachments.add(new Attachment("cv" + i + ".pdf", "etag" + i, "application/pdf", content));
+    }
+    skeleton = assembler.skeletonOf(FROM, attachments);
+    text = CompiledTemplate.compile("Hello {{username}},\n" + "x".repeat(1_000)).orElseThrow();
+    html = CompiledTemplate.compile("<p>" + "y".repeat(2_000) + "{{token}}</p>").orElseThrow();
+    token = UUID.randomUUID().toString();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    FileSystemUtils.deleteRecursively(attachmentDirectory);
+  }
+
+  @Benchmark
+  public MessageBuffer textPart() {
+    var out = new MessageBuffer(8 * 1024);
+    skeleton.writeAlternative(out, text.render(TO, token), html.render(TO, token));
+
+    return out;
+  }
+
+  @Benchmark
+  public MessageSkeleton attachmentPart() throws MessagingException {
+    return MessageSkeleton.of(FROM, attachments, attachmentStore);
+  }
+
+  @Benchmark
+  public RawMessage rawMessageOf() throws MessagingException {
+    var renderedTemplate =
+        new RenderedTemplate("Subject", text.render(TO, token), html.render(TO, token));
+
+    return assembler.rawMessageOf(skeleton, TO, renderedTemplate);
+  }
+}
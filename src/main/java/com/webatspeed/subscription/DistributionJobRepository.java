@@ -0,0 +1,19 @@
+package com.webatspeed.subscription;
+
+import com.webatspeed.subscription.model.DistributionJob;
+import com.webatspeed.subscription.model.DistributionStatus;
+import java.util.Collection;
+import java.util.Optional;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface DistributionJobRepository extends MongoRepository<DistributionJob, String> {
+
+  boolean existsByStatus(DistributionStatus status);
+
+  boolean existsByStatusIn(Collection<DistributionStatus> statuses);
+
+  Optional<DistributionJob> findFirstByOrderByCreatedAtDesc();
+
+  Optional<DistributionJob> findFirstByStatusInOrderByCreatedAtAsc(
+      Collection<DistributionStatus> statuses);
+}
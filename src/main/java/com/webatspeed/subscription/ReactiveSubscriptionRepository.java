@@ -0,0 +1,11 @@
+package com.webatspeed.subscription;
+
+import com.webatspeed.subscription.model.Subscription;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveSubscriptionRepository
+    extends ReactiveMongoRepository<Subscription, String>, ReactiveSubscriptionRepositoryCustom {
+
+  Mono<Boolean> existsByEmail(String email);
+}
@@ -0,0 +1,13 @@
+package com.webatspeed.subscription;
+
+import com.webatspeed.subscription.model.Subscription;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveSubscriptionRepositoryCustom {
+
+  Mono<Subscription> findAndApplyUpdateToken(String email, String token, int maxErrors);
+
+  Mono<Boolean> deleteByUnsubscribeToken(String email, String token, int maxErrors);
+
+  Mono<Subscription> incNumTokenErrors(String email, int maxErrors);
+}
@@ -0,0 +1,50 @@
+package com.webatspeed.subscription;
+
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.webatspeed.subscription.model.Subscription;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+public class ReactiveSubscriptionRepositoryCustomImpl
+    implements ReactiveSubscriptionRepositoryCustom {
+
+  private final ReactiveMongoTemplate mongoTemplate;
+
+  @Override
+  public Mono<Subscription> findAndApplyUpdateToken(String email, String token, int maxErrors) {
+    var options = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
+
+    return mongoTemplate
+        .getCollection(mongoTemplate.getCollectionName(Subscription.class))
+        .flatMap(
+            collection ->
+                Mono.from(
+                    collection.findOneAndUpdate(
+                        TokenQueries.filterOf(email, maxErrors),
+                        TokenQueries.pipelineOf(token),
+                        options)))
+        .map(document -> mongoTemplate.getConverter().read(Subscription.class, document));
+  }
+
+  @Override
+  public Mono<Boolean> deleteByUnsubscribeToken(String email, String token, int maxErrors) {
+    var query = TokenQueries.unsubscribeQueryOf(email, token, maxErrors);
+
+    return mongoTemplate
+        .remove(query, Subscription.class)
+        .map(result -> result.getDeletedCount() > 0);
+  }
+
+  @Override
+  public Mono<Subscription> incNumTokenErrors(String email, int maxErrors) {
+    var query = TokenQueries.tokenErrorQueryOf(email, maxErrors);
+    var update = TokenQueries.tokenErrorUpdate();
+
+    return mongoTemplate.findAndModify(
+        query, update, FindAndModifyOptions.options().returnNew(true), Subscription.class);
+  }
+}
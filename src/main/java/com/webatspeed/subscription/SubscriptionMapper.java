@@ -1,40 +1,39 @@
 package com.webatspeed.subscription;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.webatspeed.subscription.dto.SubscriptionDetails;
 import com.webatspeed.subscription.model.Subscription;
+import com.webatspeed.subscription.service.Attachment;
 import com.webatspeed.subscription.service.TemplateName;
-import jakarta.activation.DataHandler;
-import jakarta.mail.Message;
 import jakarta.mail.MessagingException;
 import jakarta.mail.Session;
-import jakarta.mail.internet.MimeBodyPart;
 import jakarta.mail.internet.MimeMessage;
-import jakarta.mail.internet.MimeMultipart;
-import jakarta.mail.util.ByteArrayDataSource;
-import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.core.ResponseBytes;
-import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.sesv2.model.BulkEmailContent;
+import software.amazon.awssdk.services.sesv2.model.BulkEmailEntry;
+import software.amazon.awssdk.services.sesv2.model.Destination;
 import software.amazon.awssdk.services.sesv2.model.GetEmailTemplateRequest;
-import software.amazon.awssdk.services.sesv2.model.RawMessage;
+import software.amazon.awssdk.services.sesv2.model.ReplacementEmailContent;
+import software.amazon.awssdk.services.sesv2.model.ReplacementTemplate;
+import software.amazon.awssdk.services.sesv2.model.SendBulkEmailRequest;
 import software.amazon.awssdk.services.sesv2.model.Template;
 import software.amazon.awssdk.services.sesv2.model.TestRenderEmailTemplateRequest;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 @Service
-@RequiredArgsConstructor
 public class SubscriptionMapper {
 
-  private final ObjectMapper objectMapper;
+  private static final TemplateDataWriter TOKEN_AND_USERNAME =
+      TemplateDataWriter.of("token", "username");
+
+  private static final TemplateDataWriter USERNAME = TemplateDataWriter.of("username");
 
   public Subscription subscriptionOf(SubscriptionDetails subscriptionDetails) {
     var subscription = new Subscription();
@@ -43,88 +42,90 @@ public class SubscriptionMapper {
     return subscription;
   }
 
-  @SneakyThrows
-  public String jsonOf(Map<String, String> args) {
-    return objectMapper.writeValueAsString(args);
+  public String templateDataOf(String username, String token) {
+    return TOKEN_AND_USERNAME.write(token, username);
   }
 
   public Template templateOf(String username, String token, TemplateName templateName) {
-    var args =
-        Map.of(
-            "token", token,
-            "username", username);
-    var templateData = jsonOf(args);
+    var templateData = templateDataOf(username, token);
 
     return Template.builder().templateName(templateName.toString()).templateData(templateData).build();
   }
 
   public Template templateOf(String username, TemplateName templateName) {
-    var args = Map.of("username", username);
+    var templateData = USERNAME.write(username);
 
-    return Template.builder().templateName(templateName.toString()).templateData(jsonOf(args)).build();
+    return Template.builder().templateName(templateName.toString()).templateData(templateData).build();
   }
 
   public TestRenderEmailTemplateRequest renderRequestOf(
       String username, String token, TemplateName templateName) {
-    var args =
-        Map.of(
-            "token", token,
-            "username", username);
-
     return TestRenderEmailTemplateRequest.builder()
             .templateName(templateName.toString())
-            .templateData(jsonOf(args))
+            .templateData(templateDataOf(username, token))
             .build();
   }
 
-  public GetEmailTemplateRequest templateRequestOf(TemplateName templateName) {
-    return GetEmailTemplateRequest.builder().templateName(templateName.toString()).build();
+  public SendBulkEmailRequest bulkRequestOf(
+      String from, TemplateName templateName, Map<String, String> tokensByRecipient) {
+    var defaultTemplate =
+        Template.builder().templateName(templateName.toString()).templateData("{}").build();
+    var entries =
+        tokensByRecipient.entrySet().stream()
+            .map(e -> bulkEntryOf(e.getKey(), e.getValue()))
+            .toList();
+
+    return SendBulkEmailRequest.builder()
+            .defaultContent(BulkEmailContent.builder().template(defaultTemplate).build())
+            .bulkEmailEntries(entries)
+            .replyToAddresses(from)
+            .fromEmailAddress(from)
+            .build();
   }
 
-  public MimeBodyPart bodyPartOf(String renderedTemplate, Session session)
-      throws IOException, MessagingException {
-    var textAndHtmlPart = new MimeBodyPart();
-    var templateStream = new ByteArrayInputStream(renderedTemplate.getBytes());
-    var textAndHtml = (MimeMultipart) new MimeMessage(session, templateStream).getContent();
-    textAndHtmlPart.setContent(textAndHtml);
+  public BulkEmailEntry bulkEntryOf(String to, String token) {
+    var replacementTemplate =
+        ReplacementTemplate.builder().replacementTemplateData(templateDataOf(to, token)).build();
 
-    return textAndHtmlPart;
+    return BulkEmailEntry.builder()
+            .destination(Destination.builder().toAddresses(to).build())
+            .replacementEmailContent(
+                ReplacementEmailContent.builder().replacementTemplate(replacementTemplate).build())
+            .build();
   }
 
-  public MimeBodyPart bodyPartOf(ResponseBytes<GetObjectResponse> objContent, String key) throws MessagingException {
-    var dataSource = new ByteArrayDataSource(objContent.asByteArray(), objContent.response().contentType());
+  public GetEmailTemplateRequest templateRequestOf(TemplateName templateName) {
+    return GetEmailTemplateRequest.builder().templateName(templateName.toString()).build();
+  }
+
+  public MimeMessage messageOf(String renderedTemplate, Session session)
+      throws MessagingException {
+    var templateStream =
+        new ByteArrayInputStream(renderedTemplate.getBytes(StandardCharsets.UTF_8));
 
-    var attachmentPart = new MimeBodyPart();
-    attachmentPart.setDataHandler(new DataHandler(dataSource));
-    attachmentPart.setFileName(key);
+    return new MimeMessage(session, templateStream);
+  }
 
-    return attachmentPart;
+  public Attachment attachmentOf(S3Object metaData, ResponseBytes<GetObjectResponse> objContent) {
+    return new Attachment(
+        metaData.key(),
+        metaData.eTag(),
+        objContent.response().contentType(),
+        objContent.asByteArray());
   }
 
-  public GetObjectRequest getRequest(String bucket, String key) {
+  public GetObjectRequest getRequest(String bucket, String key, String eTag) {
     return GetObjectRequest.builder()
             .bucket(bucket)
             .key(key)
+            .ifNoneMatch(eTag)
             .build();
   }
 
-  public RawMessage rawMessageOf(
-      String from, String to, String subject, Session session, MimeMultipart content)
-      throws MessagingException, IOException {
-    var message = new MimeMessage(session);
-    message.setSubject(subject);
-    message.setFrom(from);
-    message.setRecipients(Message.RecipientType.TO, to);
-    message.setContent(content);
-    var outputStream = new ByteArrayOutputStream();
-    message.writeTo(outputStream);
-
-    var rawData = SdkBytes.fromByteArray(outputStream.toByteArray());
-
-    return RawMessage.builder().data(rawData).build();
-  }
-
-  public ListObjectsV2Request listRequestOf(String bucketName) {
-    return ListObjectsV2Request.builder().bucket(bucketName).build();
+  public ListObjectsV2Request listRequestOf(String bucketName, String continuationToken) {
+    return ListObjectsV2Request.builder()
+            .bucket(bucketName)
+            .continuationToken(continuationToken)
+            .build();
   }
 }
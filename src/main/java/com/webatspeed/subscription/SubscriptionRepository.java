@@ -2,15 +2,14 @@ package com.webatspeed.subscription;
 
 import com.webatspeed.subscription.model.Subscription;
 import java.util.Optional;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-public interface SubscriptionRepository extends MongoRepository<Subscription, String> {
+public interface SubscriptionRepository
+    extends MongoRepository<Subscription, String>, SubscriptionRepositoryCustom {
 
   boolean existsByEmail(String email);
 
-  Optional<Subscription> findByEmailAndNumTokenErrorsLessThan(String email, Integer numTokenErrors);
+  long countByConfirmedByOwnerIsTrue();
 
-  Page<Subscription> findAllByConfirmedByOwnerIsTrue(Pageable pageable);
+  Optional<Subscription> findByEmailAndNumTokenErrorsLessThan(String email, Integer numTokenErrors);
 }
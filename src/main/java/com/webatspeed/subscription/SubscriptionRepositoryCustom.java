@@ -0,0 +1,20 @@
+package com.webatspeed.subscription;
+
+import com.webatspeed.subscription.model.Recipient;
+import com.webatspeed.subscription.model.Subscription;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface SubscriptionRepositoryCustom {
+
+  List<Recipient> findRecipientsAfter(String lastId, String upToId, int limit);
+
+  List<Recipient> findRecipientsIn(Collection<String> ids);
+
+  Optional<Subscription> findAndApplyUpdateToken(String email, String token, int maxErrors);
+
+  boolean deleteByUnsubscribeToken(String email, String token, int maxErrors);
+
+  Optional<Subscription> incNumTokenErrors(String email, int maxErrors);
+}
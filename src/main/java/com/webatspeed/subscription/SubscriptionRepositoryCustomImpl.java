@@ -0,0 +1,80 @@
+package com.webatspeed.subscription;
+
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.webatspeed.subscription.model.Recipient;
+import com.webatspeed.subscription.model.Subscription;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+@RequiredArgsConstructor
+public class SubscriptionRepositoryCustomImpl implements SubscriptionRepositoryCustom {
+
+  private final MongoTemplate mongoTemplate;
+
+  @Override
+  public List<Recipient> findRecipientsAfter(String lastId, String upToId, int limit) {
+    var criteria = Criteria.where("confirmedByOwner").is(true);
+    if (lastId != null || upToId != null) {
+      var idCriteria = criteria.and("id");
+      if (lastId != null) {
+        idCriteria.gt(lastId);
+      }
+      if (upToId != null) {
+        idCriteria.lte(upToId);
+      }
+    }
+
+    return recipientsOf(new Query(criteria).with(Sort.by("id")).limit(limit));
+  }
+
+  @Override
+  public List<Recipient> findRecipientsIn(Collection<String> ids) {
+    var criteria = Criteria.where("confirmedByOwner").is(true).and("id").in(ids);
+
+    return recipientsOf(new Query(criteria).with(Sort.by("id")));
+  }
+
+  @Override
+  public Optional<Subscription> findAndApplyUpdateToken(String email, String token, int maxErrors) {
+    var options = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
+    var updated =
+        mongoTemplate
+            .getCollection(mongoTemplate.getCollectionName(Subscription.class))
+            .findOneAndUpdate(
+                TokenQueries.filterOf(email, maxErrors), TokenQueries.pipelineOf(token), options);
+
+    return Optional.ofNullable(updated)
+        .map(document -> mongoTemplate.getConverter().read(Subscription.class, document));
+  }
+
+  @Override
+  public boolean deleteByUnsubscribeToken(String email, String token, int maxErrors) {
+    var query = TokenQueries.unsubscribeQueryOf(email, token, maxErrors);
+
+    return mongoTemplate.remove(query, Subscription.class).getDeletedCount() > 0;
+  }
+
+  @Override
+  public Optional<Subscription> incNumTokenErrors(String email, int maxErrors) {
+    var query = TokenQueries.tokenErrorQueryOf(email, maxErrors);
+    var update = TokenQueries.tokenErrorUpdate();
+
+    return Optional.ofNullable(
+        mongoTemplate.findAndModify(
+            query, update, FindAndModifyOptions.options().returnNew(true), Subscription.class));
+  }
+
+  private List<Recipient> recipientsOf(Query query) {
+    query.fields().include("email", "userUnsubscribeToken");
+
+    return mongoTemplate.query(Subscription.class).as(Recipient.class).matching(query).all();
+  }
+}
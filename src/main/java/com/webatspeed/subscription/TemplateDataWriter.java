@@ -0,0 +1,64 @@
+package com.webatspeed.subscription;
+
+final class TemplateDataWriter {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final String[] prefixes;
+
+  private final int literalLength;
+
+  private TemplateDataWriter(String[] names) {
+    prefixes = new String[names.length];
+    var length = 1;
+    for (int i = 0; i < names.length; i++) {
+      prefixes[i] = (i == 0 ? "{\"" : "\",\"") + names[i] + "\":\"";
+      length += prefixes[i].length();
+    }
+    literalLength = length + (names.length == 0 ? 1 : 2);
+  }
+
+  static TemplateDataWriter of(String... names) {
+    return new TemplateDataWriter(names.clone());
+  }
+
+  String write(String value) {
+    var builder = new StringBuilder(literalLength + value.length());
+    appendValue(builder, 0, value);
+
+    return close(builder);
+  }
+
+  String write(String first, String second) {
+    var builder = new StringBuilder(literalLength + first.length() + second.length());
+    appendValue(builder, 0, first);
+    appendValue(builder, 1, second);
+
+    return close(builder);
+  }
+
+  private void appendValue(StringBuilder builder, int index, String value) {
+    builder.append(prefixes[index]);
+    for (int i = 0; i < value.length(); i++) {
+      var c = value.charAt(i);
+      switch (c) {
+        case '"' -> builder.append("\\\"");
+        case '\\' -> builder.append("\\\\");
+        case '\n' -> builder.append("\\n");
+        case '\r' -> builder.append("\\r");
+        case '\t' -> builder.append("\\t");
+        default -> {
+          if (c < 0x20) {
+            builder.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0x0f]);
+          } else {
+            builder.append(c);
+          }
+        }
+      }
+    }
+  }
+
+  private String close(StringBuilder builder) {
+    return builder.append(prefixes.length == 0 ? "{}" : "\"}").toString();
+  }
+}
@@ -0,0 +1,128 @@
+package com.webatspeed.subscription;
+
+import static com.webatspeed.subscription.service.TemplateName.*;
+
+import com.webatspeed.subscription.service.TemplateName;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+final class TokenQueries {
+
+  private static final String TOKEN_MATCH = "tokenMatch";
+
+  private static final String OWNER_MATCH = "owner";
+
+  private static final String USER_MATCH = "user";
+
+  private static final String NO_MATCH = "none";
+
+  private TokenQueries() {}
+
+  static Document filterOf(String email, int maxErrors) {
+    return new Document("email", email).append("numTokenErrors", new Document("$lt", maxErrors));
+  }
+
+  static Query unsubscribeQueryOf(String email, String token, int maxErrors) {
+    return new Query(
+        Criteria.where("email")
+            .is(email)
+            .and("numTokenErrors")
+            .lt(maxErrors)
+            .and("userUnsubscribeToken")
+            .is(token));
+  }
+
+  static Query tokenErrorQueryOf(String email, int maxErrors) {
+    return new Query(Criteria.where("email").is(email).and("numTokenErrors").lt(maxErrors));
+  }
+
+  static Update tokenErrorUpdate() {
+    return new Update().inc("numTokenErrors", 1);
+  }
+
+  static List<Document> pipelineOf(String token) {
+    var literalToken = new Document("$literal", token);
+    var isOwnerToken =
+        new Document(
+            "$and",
+            List.of(
+                eq("$confirmedByUser", true), eq("$ownerConfirmationToken", literalToken)));
+    var isUserToken = eq("$userConfirmationToken", literalToken);
+    var tokenMatch =
+        new Document(
+            "$switch",
+            new Document(
+                    "branches",
+                    List.of(
+                        new Document("case", isOwnerToken).append("then", OWNER_MATCH),
+                        new Document("case", isUserToken).append("then", USER_MATCH)))
+                .append("default", NO_MATCH));
+
+    var now = new Date();
+    var enqueued =
+        new Document(
+            "$switch",
+            new Document(
+                    "branches",
+                    List.of(
+                        new Document("case", isMatch(OWNER_MATCH))
+                            .append("then", outboxOf(now, FIRST_CV)),
+                        new Document("case", isMatch(USER_MATCH))
+                            .append("then", outboxOf(now, PLEASE_WAIT, PLEASE_APPROVE))))
+                .append("default", List.of()));
+    var applied =
+        new Document()
+            .append("confirmedByOwner", cond(isMatch(OWNER_MATCH), true, "$confirmedByOwner"))
+            .append("confirmedByUser", cond(isMatch(USER_MATCH), true, "$confirmedByUser"))
+            .append(
+                "numTokenErrors",
+                cond(isMatch(NO_MATCH), new Document("$add", List.of("$numTokenErrors", 1)), 0))
+            .append(
+                "outbox",
+                new Document(
+                    "$concatArrays",
+                    List.of(new Document("$ifNull", List.of("$outbox", List.of())), enqueued)))
+            .append("modifiedAt", "$$NOW")
+            .append(
+                "version",
+                new Document(
+                    "$add", List.of(new Document("$ifNull", List.of("$version", 0)), 1)));
+
+    return List.of(
+        new Document("$set", new Document(TOKEN_MATCH, tokenMatch)),
+        new Document("$set", applied),
+        new Document("$unset", TOKEN_MATCH));
+  }
+
+  private static Document eq(String field, Object value) {
+    return new Document("$eq", List.of(field, value));
+  }
+
+  private static Document isMatch(String tokenMatch) {
+    return eq("$" + TOKEN_MATCH, tokenMatch);
+  }
+
+  private static Document cond(Document condition, Object then, Object otherwise) {
+    return new Document("$cond", List.of(condition, then, otherwise));
+  }
+
+  private static Document outboxOf(Date now, TemplateName... templateNames) {
+    var emails =
+        Arrays.stream(templateNames)
+            .map(
+                templateName ->
+                    new Document("outboxId", UUID.randomUUID().toString())
+                        .append("templateName", templateName.name())
+                        .append("numAttempts", 0)
+                        .append("nextAttemptAt", now))
+            .toList();
+
+    return new Document("$literal", emails);
+  }
+}
@@ -0,0 +1,91 @@
+package com.webatspeed.subscription.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.services.sesv2.model.GetEmailTemplateRequest;
+import software.amazon.awssdk.services.sesv2.model.SendBulkEmailRequest;
+import software.amazon.awssdk.services.sesv2.model.SendEmailRequest;
+import software.amazon.awssdk.services.sesv2.model.TestRenderEmailTemplateRequest;
+
+@Component
+@RequiredArgsConstructor
+public class AwsMetricsInterceptor implements ExecutionInterceptor {
+
+  public static final ExecutionAttribute<String> TEMPLATE =
+      new ExecutionAttribute<>("MetricsTemplate");
+
+  private static final ExecutionAttribute<Long> START = new ExecutionAttribute<>("MetricsStart");
+
+  private static final String NONE = "none";
+
+  private static final String RAW = "raw";
+
+  private final MeterRegistry registry;
+
+  @Override
+  public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes attributes) {
+    attributes.putAttribute(START, System.nanoTime());
+  }
+
+  @Override
+  public void afterExecution(Context.AfterExecution context, ExecutionAttributes attributes) {
+    record(context.request(), attributes, "success");
+  }
+
+  @Override
+  public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes attributes) {
+    record(context.request(), attributes, "error");
+  }
+
+  private void record(SdkRequest request, ExecutionAttributes attributes, String outcome) {
+    var start = attributes.getAttribute(START);
+    if (start == null) {
+      return;
+    }
+
+    Timer.builder("aws.calls")
+        .description("Duration of SES and S3 calls including retries")
+        .tag("service", attributes.getAttribute(SdkExecutionAttribute.SERVICE_NAME))
+        .tag("operation", attributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME))
+        .tag("template", Objects.requireNonNullElse(templateOf(request, attributes), NONE))
+        .tag("outcome", outcome)
+        .publishPercentileHistogram()
+        .register(registry)
+        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+  }
+
+  private static String templateOf(SdkRequest request, ExecutionAttributes attributes) {
+    var template = attributes.getAttribute(TEMPLATE);
+    if (template != null) {
+      return template;
+    }
+    if (request instanceof GetEmailTemplateRequest getTemplate) {
+      return getTemplate.templateName();
+    }
+    if (request instanceof TestRenderEmailTemplateRequest renderTemplate) {
+      return renderTemplate.templateName();
+    }
+    if (request instanceof SendEmailRequest sendEmail) {
+      var template = sendEmail.content() == null ? null : sendEmail.content().template();
+      return template == null ? RAW : template.templateName();
+    }
+    if (request instanceof SendBulkEmailRequest sendBulkEmail) {
+      var content = sendBulkEmail.defaultContent();
+      return content == null || content.template() == null
+          ? NONE
+          : content.template().templateName();
+    }
+
+    return NONE;
+  }
+}
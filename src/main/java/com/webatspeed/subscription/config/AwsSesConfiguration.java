@@ -8,10 +8,14 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.validation.annotation.Validated;
+import software.amazon.awssdk.awscore.client.builder.AwsClientBuilder;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.sesv2.SesV2AsyncClient;
 import software.amazon.awssdk.services.sesv2.SesV2Client;
 
+import java.net.URI;
 import java.util.Map;
 
 @Getter
@@ -25,14 +29,42 @@ public class AwsSesConfiguration {
 
   @NotEmpty private Map<String, String> region;
 
+  private URI endpoint;
+
+  @Bean
+  SesV2Client sesV2Client(AwsMetricsInterceptor metricsInterceptor) {
+    return configured(SesV2Client.builder(), metricsInterceptor).build();
+  }
+
   @Bean
-  SesV2Client sesV2Client() {
-    return SesV2Client.builder().region(region()).build();
+  SesV2AsyncClient sesV2AsyncClient(
+      MailConfiguration mailConfiguration, AwsMetricsInterceptor metricsInterceptor) {
+    var httpClient =
+        NettyNioAsyncHttpClient.builder()
+            .maxConcurrency(mailConfiguration.getDistributionInFlight())
+            .tcpKeepAlive(true);
+
+    return configured(SesV2AsyncClient.builder(), metricsInterceptor)
+        .httpClientBuilder(httpClient)
+        .build();
   }
 
   @Bean
-  S3Client amazonS3Client() {
-    return S3Client.builder().region(region()).build();
+  S3Client amazonS3Client(AwsMetricsInterceptor metricsInterceptor) {
+    return configured(S3Client.builder(), metricsInterceptor)
+        .forcePathStyle(endpoint != null)
+        .build();
+  }
+
+  private <B extends AwsClientBuilder<B, ?>> B configured(
+      B builder, AwsMetricsInterceptor metricsInterceptor) {
+    builder.region(region());
+    builder.overrideConfiguration(c -> c.addExecutionInterceptor(metricsInterceptor));
+    if (endpoint != null) {
+      builder.endpointOverride(endpoint);
+    }
+
+    return builder;
   }
 
   private Region region() {
@@ -1,9 +1,14 @@
 package com.webatspeed.subscription.config;
 
+import com.webatspeed.subscription.service.DistributionMode;
+import com.webatspeed.subscription.service.DistributionSender;
+import com.webatspeed.subscription.service.TemplateRendering;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import java.nio.file.Path;
+import java.time.Duration;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -21,5 +26,37 @@ public class MailConfiguration {
 
   @NotNull @Positive private Integer maxErrors;
 
+  @NotNull private Duration outboxPollInterval;
+
+  @NotNull private Duration outboxRetryDelay;
+
+  @NotNull @Positive private Integer outboxMaxAttempts;
+
   @NotBlank private String attachmentBucket;
+
+  @NotNull private Duration attachmentTtl;
+
+  @NotNull private Path attachmentStore;
+
+  @NotNull private Duration templateTtl;
+
+  @NotNull private TemplateRendering templateRendering;
+
+  @NotNull private DistributionMode distributionMode;
+
+  @NotNull private DistributionSender distributionSender;
+
+  @NotNull @Positive private Integer distributionConcurrency;
+
+  @NotNull @Positive private Integer distributionInFlight;
+
+  @NotNull private Duration distributionLeaseTtl;
+
+  @NotNull @Positive private Integer distributionRanges;
+
+  @NotNull @Positive private Integer distributionMaxAttempts;
+
+  @NotNull private Duration distributionRetryDelay;
+
+  @NotNull @Positive private Integer distributionRetryCapacity;
 }
@@ -0,0 +1,10 @@
+package com.webatspeed.subscription.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.config.EnableReactiveMongoAuditing;
+
+@Configuration
+@Profile("reactive")
+@EnableReactiveMongoAuditing
+public class ReactiveMongoConfiguration {}
@@ -0,0 +1,16 @@
+package com.webatspeed.subscription.config;
+
+import java.time.Clock;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+
+  @Bean
+  public Clock clock() {
+    return Clock.systemUTC();
+  }
+}
@@ -0,0 +1,130 @@
+package com.webatspeed.subscription.controller;
+
+import static org.springframework.http.HttpStatus.*;
+
+import com.webatspeed.subscription.SubscriptionMapper;
+import com.webatspeed.subscription.dto.DistributionProgress;
+import com.webatspeed.subscription.dto.DistributionRate;
+import com.webatspeed.subscription.dto.SubscriptionDetails;
+import com.webatspeed.subscription.exception.FalseTokenException;
+import com.webatspeed.subscription.service.DistributionControl;
+import com.webatspeed.subscription.service.ReactiveSubscriber;
+import com.webatspeed.subscription.service.TemplateCache;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+@Validated
+@Profile("reactive")
+@RequestMapping("/v1/subscription")
+@RestController
+@RequiredArgsConstructor
+@CrossOrigin(originPatterns = "${security.cors.origin-url}")
+public class ReactiveSubscriptionController {
+
+  private final SubscriptionMapper mapper;
+
+  private final ReactiveSubscriber subscriber;
+
+  private final TemplateCache templateCache;
+
+  private final DistributionControl distributionControl;
+
+  @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+  public Mono<ResponseEntity<Void>> createSubscription(
+      @RequestBody @Valid final SubscriptionDetails details) {
+    var subscription = mapper.subscriptionOf(details);
+
+    return subscriber
+        .initiateToken(subscription)
+        .thenReturn(ResponseEntity.status(CREATED).build());
+  }
+
+  @PostMapping(path = "/distribute")
+  public Mono<ResponseEntity<Void>> applySubscriptions() {
+    return subscriber
+        .distribute()
+        .map(isStarted -> ResponseEntity.status(isStarted ? ACCEPTED : LOCKED).build());
+  }
+
+  @PostMapping(path = "/distribute/dead-letters")
+  public Mono<ResponseEntity<Void>> replayDeadLetters() {
+    return subscriber
+        .replayDeadLetters()
+        .map(isStarted -> ResponseEntity.status(isStarted ? ACCEPTED : LOCKED).build());
+  }
+
+  @GetMapping(path = "/distribute")
+  public Mono<ResponseEntity<DistributionProgress>> distributionProgress() {
+    return Mono.fromCallable(distributionControl::progress)
+        .subscribeOn(Schedulers.boundedElastic())
+        .map(ResponseEntity::ok);
+  }
+
+  @PostMapping(path = "/distribute/pause")
+  public Mono<ResponseEntity<Void>> pauseDistribution() {
+    return control(distributionControl::pause)
+        .thenReturn(ResponseEntity.status(NO_CONTENT).build());
+  }
+
+  @PostMapping(path = "/distribute/resume")
+  public Mono<ResponseEntity<Void>> resumeDistribution() {
+    return control(distributionControl::resume)
+        .thenReturn(ResponseEntity.status(ACCEPTED).build());
+  }
+
+  @DeleteMapping(path = "/distribute")
+  public Mono<ResponseEntity<Void>> cancelDistribution() {
+    return control(distributionControl::cancel)
+        .thenReturn(ResponseEntity.status(NO_CONTENT).build());
+  }
+
+  @PutMapping(path = "/distribute/rate", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public Mono<ResponseEntity<Void>> limitDistributionRate(
+      @RequestBody @Valid final DistributionRate rate) {
+    return control(() -> distributionControl.limitSendRate(rate.maxSendRate()))
+        .thenReturn(ResponseEntity.status(NO_CONTENT).build());
+  }
+
+  @DeleteMapping(path = "/templates")
+  public Mono<ResponseEntity<Void>> invalidateTemplates() {
+    templateCache.invalidate();
+
+    return Mono.just(ResponseEntity.status(NO_CONTENT).build());
+  }
+
+  @PutMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+  public Mono<ResponseEntity<Void>> updateSubscription(
+      @RequestBody @Valid final SubscriptionDetails details) {
+    if (!StringUtils.hasText(details.token())) {
+      throw new FalseTokenException();
+    }
+
+    return subscriber
+        .applyUpdateToken(details.email(), details.token())
+        .thenReturn(ResponseEntity.status(NO_CONTENT).build());
+  }
+
+  @DeleteMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+  public Mono<ResponseEntity<Void>> deleteSubscription(
+      @RequestBody @Valid final SubscriptionDetails details) {
+    if (!StringUtils.hasText(details.token())) {
+      throw new FalseTokenException();
+    }
+
+    return subscriber
+        .applyDeleteToken(details.email(), details.token())
+        .thenReturn(ResponseEntity.status(NO_CONTENT).build());
+  }
+
+  private static Mono<Void> control(Runnable change) {
+    return Mono.<Void>fromRunnable(change).subscribeOn(Schedulers.boundedElastic());
+  }
+}
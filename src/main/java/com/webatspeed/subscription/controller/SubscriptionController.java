@@ -3,15 +3,16 @@ package com.webatspeed.subscription.controller;
 import static org.springframework.http.HttpStatus.*;
 
 import com.webatspeed.subscription.SubscriptionMapper;
-import com.webatspeed.subscription.SubscriptionRepository;
-import com.webatspeed.subscription.config.MailConfiguration;
+import com.webatspeed.subscription.dto.DistributionProgress;
+import com.webatspeed.subscription.dto.DistributionRate;
 import com.webatspeed.subscription.dto.SubscriptionDetails;
 import com.webatspeed.subscription.exception.FalseTokenException;
-import com.webatspeed.subscription.exception.UserAlreadyExistsException;
-import com.webatspeed.subscription.exception.UserUnknownOrLockedException;
+import com.webatspeed.subscription.service.DistributionControl;
 import com.webatspeed.subscription.service.Subscriber;
+import com.webatspeed.subscription.service.TemplateCache;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -20,36 +21,32 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 @Validated
+@Profile("!reactive")
 @RequestMapping("/v1/subscription")
 @RestController
 @RequiredArgsConstructor
 @CrossOrigin(originPatterns = "${security.cors.origin-url}")
 public class SubscriptionController {
 
-  private final SubscriptionRepository repository;
-
   private final SubscriptionMapper mapper;
 
   private final Subscriber subscriber;
 
-  private final MailConfiguration configuration;
+  private final TemplateCache templateCache;
+
+  private final DistributionControl distributionControl;
 
   @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
   public ResponseEntity<?> createSubscription(
       @RequestBody @Valid final SubscriptionDetails details) {
-    if (repository.existsByEmail(details.email())) {
-      throw new UserAlreadyExistsException();
-    }
-
     var subscription = mapper.subscriptionOf(details);
-    repository.save(subscription);
     subscriber.initiateToken(subscription);
 
     return ResponseEntity.status(CREATED).build();
   }
 
   @PostMapping(path = "/distribute")
-  public synchronized ResponseEntity<?> applySubscriptions() {
+  public ResponseEntity<?> applySubscriptions() {
     HttpStatus httpStatus;
     if (subscriber.isDistributing()) {
       httpStatus = LOCKED;
@@ -61,6 +58,59 @@ public class SubscriptionController {
     return ResponseEntity.status(httpStatus).build();
   }
 
+  @PostMapping(path = "/distribute/dead-letters")
+  public ResponseEntity<?> replayDeadLetters() {
+    HttpStatus httpStatus;
+    if (subscriber.isDistributing()) {
+      httpStatus = LOCKED;
+    } else {
+      httpStatus = ACCEPTED;
+      subscriber.replayDeadLetters();
+    }
+
+    return ResponseEntity.status(httpStatus).build();
+  }
+
+  @GetMapping(path = "/distribute")
+  public ResponseEntity<DistributionProgress> distributionProgress() {
+    return ResponseEntity.ok(distributionControl.progress());
+  }
+
+  @PostMapping(path = "/distribute/pause")
+  public ResponseEntity<?> pauseDistribution() {
+    distributionControl.pause();
+
+    return ResponseEntity.status(NO_CONTENT).build();
+  }
+
+  @PostMapping(path = "/distribute/resume")
+  public ResponseEntity<?> resumeDistribution() {
+    distributionControl.resume();
+
+    return ResponseEntity.status(ACCEPTED).build();
+  }
+
+  @DeleteMapping(path = "/distribute")
+  public ResponseEntity<?> cancelDistribution() {
+    distributionControl.cancel();
+
+    return ResponseEntity.status(NO_CONTENT).build();
+  }
+
+  @PutMapping(path = "/distribute/rate", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<?> limitDistributionRate(@RequestBody @Valid final DistributionRate rate) {
+    distributionControl.limitSendRate(rate.maxSendRate());
+
+    return ResponseEntity.status(NO_CONTENT).build();
+  }
+
+  @DeleteMapping(path = "/templates")
+  public ResponseEntity<?> invalidateTemplates() {
+    templateCache.invalidate();
+
+    return ResponseEntity.status(NO_CONTENT).build();
+  }
+
   @PutMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
   public ResponseEntity<?> updateSubscription(
       @RequestBody @Valid final SubscriptionDetails details) {
@@ -68,10 +118,7 @@ public class SubscriptionController {
       throw new FalseTokenException();
     }
 
-    repository
-        .findByEmailAndNumTokenErrorsLessThan(details.email(), configuration.getMaxErrors())
-        .map(s -> subscriber.applyUpdateToken(s, details.token()))
-        .orElseThrow(UserUnknownOrLockedException::new);
+    subscriber.applyUpdateToken(details.email(), details.token());
 
     return ResponseEntity.status(NO_CONTENT).build();
   }
@@ -83,12 +130,7 @@ public class SubscriptionController {
       throw new FalseTokenException();
     }
 
-    if (repository.existsByEmail(details.email())) {
-      repository
-          .findByEmailAndNumTokenErrorsLessThan(details.email(), configuration.getMaxErrors())
-          .map(s -> subscriber.applyDeleteToken(s, details.token()))
-          .orElseThrow(UserUnknownOrLockedException::new);
-    }
+    subscriber.applyDeleteToken(details.email(), details.token());
 
     return ResponseEntity.status(NO_CONTENT).build();
   }
@@ -1,5 +1,7 @@
 package com.webatspeed.subscription.controller;
 
+import com.webatspeed.subscription.exception.DistributionStateException;
+import com.webatspeed.subscription.exception.DistributionUnknownException;
 import com.webatspeed.subscription.exception.EmailSendException;
 import com.webatspeed.subscription.exception.FalseTokenException;
 import com.webatspeed.subscription.exception.UserAlreadyExistsException;
@@ -33,6 +35,20 @@ public class SubscriptionExceptionAdvice {
     return ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, exception.getMessage());
   }
 
+  @ResponseStatus(HttpStatus.NOT_FOUND)
+  @ExceptionHandler(DistributionUnknownException.class)
+  public ProblemDetail handleDistributionUnknownException(
+      final DistributionUnknownException exception) {
+    return ProblemDetail.forStatusAndDetail(HttpStatus.NOT_FOUND, exception.getMessage());
+  }
+
+  @ResponseStatus(HttpStatus.CONFLICT)
+  @ExceptionHandler(DistributionStateException.class)
+  public ProblemDetail handleDistributionStateException(
+      final DistributionStateException exception) {
+    return ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, exception.getMessage());
+  }
+
   @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
   @ExceptionHandler(EmailSendException.class)
   public ProblemDetail handleEmailSendException(final EmailSendException exception) {
@@ -0,0 +1,18 @@
+package com.webatspeed.subscription.dto;
+
+import com.webatspeed.subscription.model.DistributionStatus;
+import java.time.Instant;
+
+public record DistributionProgress(
+    String id,
+    DistributionStatus status,
+    long numRecipients,
+    long numProcessed,
+    long numSent,
+    long numFailed,
+    long numSkipped,
+    long numDeadLetters,
+    Double sendRate,
+    Double maxSendRate,
+    Instant createdAt,
+    Instant estimatedCompletionAt) {}
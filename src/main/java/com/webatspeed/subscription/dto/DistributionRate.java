@@ -0,0 +1,5 @@
+package com.webatspeed.subscription.dto;
+
+import jakarta.validation.constraints.Positive;
+
+public record DistributionRate(@Positive Double maxSendRate) {}
@@ -0,0 +1,8 @@
+package com.webatspeed.subscription.exception;
+
+public class DistributionStateException extends RuntimeException {
+
+  public DistributionStateException() {
+    super("Distribution not in a state allowing this change");
+  }
+}
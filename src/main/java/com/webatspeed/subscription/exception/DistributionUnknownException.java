@@ -0,0 +1,8 @@
+package com.webatspeed.subscription.exception;
+
+public class DistributionUnknownException extends RuntimeException {
+
+  public DistributionUnknownException() {
+    super("Distribution unknown");
+  }
+}
@@ -0,0 +1,8 @@
+package com.webatspeed.subscription.exception;
+
+public class TransientSendException extends RuntimeException {
+
+  public TransientSendException(String reason) {
+    super("Email send failed transiently: " + reason);
+  }
+}
@@ -0,0 +1,23 @@
+package com.webatspeed.subscription.model;
+
+import java.time.Instant;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Data
+@Document
+public class DeadLetter {
+
+  @Id private String subscriptionId;
+
+  private String jobId;
+
+  private String email;
+
+  private String reason;
+
+  private int numFailures = 0;
+
+  private Instant failedAt;
+}
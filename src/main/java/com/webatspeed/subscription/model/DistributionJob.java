@@ -0,0 +1,48 @@
+package com.webatspeed.subscription.model;
+
+import java.time.Instant;
+import lombok.*;
+import org.springframework.data.annotation.*;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Data
+@Document
+public class DistributionJob {
+
+  @Id private String id;
+
+  @Indexed private DistributionStatus status = DistributionStatus.RUNNING;
+
+  private int batchSize;
+
+  private String contentFingerprint;
+
+  private long numRecipients = 0;
+
+  private Double maxSendRate;
+
+  private Instant resumedAt;
+
+  private long numAttemptedAtResume = 0;
+
+  private long numSent = 0;
+
+  private long numFailed = 0;
+
+  private long numSkipped = 0;
+
+  @CreatedDate @EqualsAndHashCode.Exclude private Instant createdAt;
+
+  @LastModifiedDate @EqualsAndHashCode.Exclude private Instant modifiedAt;
+
+  @Version @EqualsAndHashCode.Exclude private Integer version;
+
+  public void incNumSent(long num) {
+    numSent += num;
+  }
+
+  public void incNumFailed(long num) {
+    numFailed += num;
+  }
+}
@@ -0,0 +1,52 @@
+package com.webatspeed.subscription.model;
+
+import java.time.Instant;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Data
+@Document
+@NoArgsConstructor
+@CompoundIndex(def = "{'jobId': 1, 'status': 1}")
+public class DistributionRange {
+
+  @Id private String id;
+
+  private String jobId;
+
+  private String lastSubscriptionId;
+
+  private String upToId;
+
+  private RangeStatus status = RangeStatus.PENDING;
+
+  private String claimedBy;
+
+  private Instant claimExpiresAt;
+
+  private long numSent = 0;
+
+  private long numFailed = 0;
+
+  private long numSkipped = 0;
+
+  public DistributionRange(String jobId, String lastSubscriptionId, String upToId) {
+    this.jobId = jobId;
+    this.lastSubscriptionId = lastSubscriptionId;
+    this.upToId = upToId;
+  }
+
+  public void incNumSent(long num) {
+    numSent += num;
+  }
+
+  public void incNumFailed(long num) {
+    numFailed += num;
+  }
+
+  public void incNumSkipped(long num) {
+    numSkipped += num;
+  }
+}
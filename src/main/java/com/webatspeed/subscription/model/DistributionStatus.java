@@ -0,0 +1,9 @@
+package com.webatspeed.subscription.model;
+
+public enum DistributionStatus {
+  RUNNING,
+  PAUSED,
+  CANCELLED,
+  FAILED,
+  COMPLETED
+}
@@ -0,0 +1,17 @@
+package com.webatspeed.subscription.model;
+
+import java.time.Instant;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Data
+@Document
+public class Lease {
+
+  @Id private String id;
+
+  private String holder;
+
+  private Instant expiresAt;
+}
@@ -0,0 +1,28 @@
+package com.webatspeed.subscription.model;
+
+import com.webatspeed.subscription.service.TemplateName;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class OutboxEmail {
+
+  private String outboxId = UUID.randomUUID().toString();
+
+  private TemplateName templateName;
+
+  private int numAttempts = 0;
+
+  private Instant nextAttemptAt = Instant.now();
+
+  public OutboxEmail(TemplateName templateName) {
+    this.templateName = templateName;
+  }
+
+  public boolean isDue(Instant now) {
+    return !nextAttemptAt.isAfter(now);
+  }
+}
@@ -0,0 +1,8 @@
+package com.webatspeed.subscription.model;
+
+public enum RangeStatus {
+  PENDING,
+  CLAIMED,
+  COMPLETED,
+  FAILED
+}
@@ -0,0 +1,5 @@
+package com.webatspeed.subscription.model;
+
+import org.springframework.data.annotation.Id;
+
+public record Recipient(@Id String id, String email, String userUnsubscribeToken) {}
@@ -0,0 +1,19 @@
+package com.webatspeed.subscription.model;
+
+import java.time.Instant;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Data
+@Document
+public class SendLedgerEntry {
+
+  @Id private String subscriptionId;
+
+  private String contentFingerprint;
+
+  private String jobId;
+
+  private Instant sentAt;
+}
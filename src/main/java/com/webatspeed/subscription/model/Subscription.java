@@ -1,6 +1,9 @@
 package com.webatspeed.subscription.model;
 
+import com.webatspeed.subscription.service.TemplateName;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import lombok.*;
 import org.springframework.data.annotation.*;
@@ -11,7 +14,14 @@ import org.springframework.data.mongodb.core.mapping.Document;
 
 @Data
 @Document
-@CompoundIndexes({@CompoundIndex(def = "{'email' : 1, 'numTokenErrors': 1}")})
+@CompoundIndexes({
+  @CompoundIndex(def = "{'email' : 1, 'numTokenErrors': 1}"),
+  @CompoundIndex(
+      name = "confirmedByOwner_id",
+      def = "{'confirmedByOwner': 1, '_id': 1}",
+      partialFilter = "{'confirmedByOwner': true}"),
+  @CompoundIndex(name = "outbox_nextAttemptAt", def = "{'outbox.nextAttemptAt': 1}", sparse = true)
+})
 public class Subscription {
 
   @Id private String id;
@@ -29,7 +39,9 @@ public class Subscription {
 
   private Boolean confirmedByUser = false;
 
-  @Indexed private Boolean confirmedByOwner = false;
+  private Boolean confirmedByOwner = false;
+
+  private List<OutboxEmail> outbox = new ArrayList<>();
 
   @CreatedDate @EqualsAndHashCode.Exclude private Instant createdAt;
 
@@ -44,4 +56,8 @@ public class Subscription {
   public void resetNumTokenErrors() {
     numTokenErrors = 0;
   }
+
+  public void enqueue(TemplateName templateName) {
+    outbox.add(new OutboxEmail(templateName));
+  }
 }
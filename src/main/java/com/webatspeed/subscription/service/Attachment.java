@@ -0,0 +1,3 @@
+package com.webatspeed.subscription.service;
+
+public record Attachment(String key, String eTag, String contentType, byte[] content) {}
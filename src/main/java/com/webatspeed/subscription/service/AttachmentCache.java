@@ -0,0 +1,94 @@
+package com.webatspeed.subscription.service;
+
+import com.webatspeed.subscription.SubscriptionMapper;
+import com.webatspeed.subscription.config.MailConfiguration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AttachmentCache {
+
+  private final S3Client storageClient;
+
+  private final MailConfiguration mailConfiguration;
+
+  private final SubscriptionMapper mapper;
+
+  private final SubscriptionMetrics metrics;
+
+  private Map<String, Attachment> attachments = Map.of();
+
+  private Instant loadedAt;
+
+  public synchronized List<Attachment> attachments() {
+    if (isExpired()) {
+      refresh();
+    }
+
+    return List.copyOf(attachments.values());
+  }
+
+  public synchronized void refresh() {
+    var bucket = mailConfiguration.getAttachmentBucket();
+    var refreshed = new LinkedHashMap<String, Attachment>();
+
+    String continuationToken = null;
+    do {
+      var listRequest = mapper.listRequestOf(bucket, continuationToken);
+      var listResponse = storageClient.listObjectsV2(listRequest);
+      for (var metaData : listResponse.contents()) {
+        refreshed.put(metaData.key(), revalidate(bucket, metaData));
+      }
+      continuationToken =
+          Boolean.TRUE.equals(listResponse.isTruncated())
+              ? listResponse.nextContinuationToken()
+              : null;
+    } while (continuationToken != null);
+
+    attachments = refreshed;
+    loadedAt = Instant.now();
+    log.debug("Attachments refreshed: {} objects", refreshed.size());
+  }
+
+  private Attachment revalidate(String bucket, S3Object metaData) {
+    var cached = attachments.get(metaData.key());
+    if (cached != null
+        && cached.eTag() != null
+        && Objects.equals(cached.eTag(), metaData.eTag())) {
+      metrics.onAttachmentLookup(true);
+      return cached;
+    }
+
+    var eTag = cached == null ? null : cached.eTag();
+    var objectRequest = mapper.getRequest(bucket, metaData.key(), eTag);
+    try {
+      var objectBytes = storageClient.getObjectAsBytes(objectRequest);
+      metrics.onAttachmentLookup(false);
+      return mapper.attachmentOf(metaData, objectBytes);
+    } catch (S3Exception e) {
+      if (cached != null && e.statusCode() == HttpStatus.NOT_MODIFIED.value()) {
+        metrics.onAttachmentLookup(true);
+        return new Attachment(
+            cached.key(), metaData.eTag(), cached.contentType(), cached.content());
+      }
+      throw e;
+    }
+  }
+
+  private boolean isExpired() {
+    return loadedAt == null
+        || !loadedAt.plus(mailConfiguration.getAttachmentTtl()).isAfter(Instant.now());
+  }
+}
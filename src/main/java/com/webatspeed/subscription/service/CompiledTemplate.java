@@ -0,0 +1,151 @@
+package com.webatspeed.subscription.service;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Optional;
+
+public final class CompiledTemplate {
+
+  private static final String OPEN = "{{";
+
+  private static final String OPEN_RAW = "{{{";
+
+  private static final String CLOSE = "}}";
+
+  private static final String CLOSE_RAW = "}}}";
+
+  private static final String USERNAME = "username";
+
+  private static final String TOKEN = "token";
+
+  private final String[] literals;
+
+  private final String[] variables;
+
+  private final boolean[] escaped;
+
+  private final int literalLength;
+
+  private CompiledTemplate(String[] literals, String[] variables, boolean[] escaped) {
+    this.literals = literals;
+    this.variables = variables;
+    this.escaped = escaped;
+
+    var length = 0;
+    for (var literal : literals) {
+      length += literal.length();
+    }
+    this.literalLength = length;
+  }
+
+  public static Optional<CompiledTemplate> compile(String source) {
+    var literals = new ArrayList<String>();
+    var variables = new ArrayList<String>();
+    var escaped = new ArrayList<Boolean>();
+
+    var position = 0;
+    int start;
+    while ((start = source.indexOf(OPEN, position)) >= 0) {
+      if (start > 0 && source.charAt(start - 1) == '\\') {
+        return Optional.empty();
+      }
+      var isRaw = source.startsWith(OPEN_RAW, start);
+      var close = isRaw ? CLOSE_RAW : CLOSE;
+      var nameStart = start + (isRaw ? OPEN_RAW.length() : OPEN.length());
+      var end = source.indexOf(close, nameStart);
+      if (end < 0) {
+        return Optional.empty();
+      }
+      var name = source.substring(nameStart, end).strip();
+      if (!isIdentifier(name)) {
+        return Optional.empty();
+      }
+
+      literals.add(source.substring(position, start));
+      variables.add(name);
+      escaped.add(!isRaw);
+      position = end + close.length();
+    }
+    literals.add(source.substring(position));
+
+    var escapedFlags = new boolean[escaped.size()];
+    for (int i = 0; i < escapedFlags.length; i++) {
+      escapedFlags[i] = escaped.get(i);
+    }
+
+    return Optional.of(
+        new CompiledTemplate(
+            literals.toArray(String[]::new), variables.toArray(String[]::new), escapedFlags));
+  }
+
+  public String render(Map<String, String> args) {
+    var builder = new StringBuilder(literalLength + 64 * variables.length);
+    renderTo(builder, args);
+
+    return builder.toString();
+  }
+
+  public String render(String username, String token) {
+    var builder = new StringBuilder(literalLength + 64 * variables.length);
+    for (int i = 0; i < variables.length; i++) {
+      builder.append(literals[i]);
+      switch (variables[i]) {
+        case USERNAME -> append(builder, i, username);
+        case TOKEN -> append(builder, i, token);
+        default -> {}
+      }
+    }
+    builder.append(literals[variables.length]);
+
+    return builder.toString();
+  }
+
+  public void renderTo(StringBuilder builder, Map<String, String> args) {
+    for (int i = 0; i < variables.length; i++) {
+      builder.append(literals[i]);
+      append(builder, i, args.get(variables[i]));
+    }
+    builder.append(literals[variables.length]);
+  }
+
+  private void append(StringBuilder builder, int variable, String value) {
+    if (value == null) {
+      return;
+    }
+    if (escaped[variable]) {
+      appendEscaped(builder, value);
+    } else {
+      builder.append(value);
+    }
+  }
+
+  private static void appendEscaped(StringBuilder builder, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      var c = value.charAt(i);
+      switch (c) {
+        case '&' -> builder.append("&amp;");
+        case '<' -> builder.append("&lt;");
+        case '>' -> builder.append("&gt;");
+        case '"' -> builder.append("&quot;");
+        case '\'' -> builder.append("&#x27;");
+        case '`' -> builder.append("&#x60;");
+        case '=' -> builder.append("&#x3D;");
+        default -> builder.append(c);
+      }
+    }
+  }
+
+  private static boolean isIdentifier(String name) {
+    if (name.isEmpty()) {
+      return false;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      var c = name.charAt(i);
+      if (!(Character.isLetterOrDigit(c) || c == '_')) {
+        return false;
+      }
+    }
+
+    return !"else".equals(name);
+  }
+}
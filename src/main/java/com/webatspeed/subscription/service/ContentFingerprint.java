@@ -0,0 +1,67 @@
+package com.webatspeed.subscription.service;
+
+import com.webatspeed.subscription.config.MailConfiguration;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class ContentFingerprint {
+
+  private static final String ALGORITHM = "SHA-256";
+
+  private final AttachmentCache attachmentCache;
+
+  private final TemplateCache templateCache;
+
+  private final MailConfiguration mailConfiguration;
+
+  public String current() {
+    var digest = digestOf();
+    var mode = mailConfiguration.getDistributionMode();
+    update(digest, mode.name());
+    update(digest, mailConfiguration.getDefaultSender());
+
+    var template = templateCache.contentOf(TemplateName.UPDATED_CV);
+    update(digest, template.subject());
+    update(digest, template.text());
+    update(digest, template.html());
+
+    if (mode == DistributionMode.RAW) {
+      var attachments =
+          attachmentCache.attachments().stream()
+              .sorted(Comparator.comparing(Attachment::key))
+              .toList();
+      for (var attachment : attachments) {
+        update(digest, attachment.key());
+        if (attachment.eTag() == null) {
+          digest.update(digestOf().digest(attachment.content()));
+        } else {
+          update(digest, attachment.eTag());
+        }
+      }
+    }
+
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  private static void update(MessageDigest digest, String value) {
+    if (value != null) {
+      digest.update(value.getBytes(StandardCharsets.UTF_8));
+    }
+    digest.update((byte) 0);
+  }
+
+  private static MessageDigest digestOf() {
+    try {
+      return MessageDigest.getInstance(ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package com.webatspeed.subscription.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import com.webatspeed.subscription.model.DeadLetter;
+import com.webatspeed.subscription.model.Recipient;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DeadLetters {
+
+  private final MongoTemplate mongoTemplate;
+
+  public void add(String jobId, Recipient recipient, String reason) {
+    var update =
+        new Update()
+            .set("jobId", jobId)
+            .set("email", recipient.email())
+            .set("reason", reason)
+            .set("failedAt", Instant.now())
+            .inc("numFailures", 1);
+
+    mongoTemplate.upsert(
+        query(where("subscriptionId").is(recipient.id())), update, DeadLetter.class);
+    log.warn("Email to {} dead-lettered: {}", recipient.email(), reason);
+  }
+
+  public void remove(String subscriptionId) {
+    mongoTemplate.remove(query(where("subscriptionId").is(subscriptionId)), DeadLetter.class);
+  }
+
+  public void removeAll(Collection<String> subscriptionIds) {
+    if (!subscriptionIds.isEmpty()) {
+      mongoTemplate.remove(query(where("subscriptionId").in(subscriptionIds)), DeadLetter.class);
+    }
+  }
+
+  public List<DeadLetter> findAfter(String lastSubscriptionId, int limit) {
+    var query = new Query().with(Sort.by("subscriptionId")).limit(limit);
+    if (lastSubscriptionId != null) {
+      query.addCriteria(where("subscriptionId").gt(lastSubscriptionId));
+    }
+
+    return mongoTemplate.find(query, DeadLetter.class);
+  }
+
+  public long count() {
+    return mongoTemplate.count(new Query(), DeadLetter.class);
+  }
+}
@@ -0,0 +1,150 @@
+package com.webatspeed.subscription.service;
+
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import com.webatspeed.subscription.DistributionJobRepository;
+import com.webatspeed.subscription.dto.DistributionProgress;
+import com.webatspeed.subscription.exception.DistributionStateException;
+import com.webatspeed.subscription.exception.DistributionUnknownException;
+import com.webatspeed.subscription.model.DistributionJob;
+import com.webatspeed.subscription.model.DistributionRange;
+import com.webatspeed.subscription.model.DistributionStatus;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DistributionControl {
+
+  private static final List<DistributionStatus> RUNNING = List.of(DistributionStatus.RUNNING);
+
+  private static final List<DistributionStatus> PAUSED = List.of(DistributionStatus.PAUSED);
+
+  private static final List<DistributionStatus> ACTIVE =
+      List.of(DistributionStatus.RUNNING, DistributionStatus.PAUSED);
+
+  private final MongoTemplate mongoTemplate;
+
+  private final DistributionJobRepository jobRepository;
+
+  private final DistributionRanges ranges;
+
+  private final Subscriber subscriber;
+
+  private final SendRateController rateController;
+
+  private final DeadLetters deadLetters;
+
+  public DistributionProgress progress() {
+    var job =
+        jobRepository
+            .findFirstByOrderByCreatedAtDesc()
+            .orElseThrow(DistributionUnknownException::new);
+
+    return progressOf(job, ranges.rangesOf(job.getId()), deadLetters.count(), Instant.now());
+  }
+
+  public void pause() {
+    var job = change(query(where("status").in(RUNNING)), updateOf(DistributionStatus.PAUSED));
+    log.info("Distribution {} paused", job.getId());
+  }
+
+  public void resume() {
+    var paused =
+        jobRepository
+            .findFirstByStatusInOrderByCreatedAtAsc(PAUSED)
+            .orElseThrow(DistributionStateException::new);
+    var update =
+        updateOf(DistributionStatus.RUNNING)
+            .set("resumedAt", Instant.now())
+            .set("numAttemptedAtResume", numAttemptedOf(ranges.rangesOf(paused.getId())));
+    var job = change(query(where("id").is(paused.getId()).and("status").in(PAUSED)), update);
+
+    log.info("Distribution {} resumed", job.getId());
+    subscriber.distribute();
+  }
+
+  public void cancel() {
+    var job = change(query(where("status").in(ACTIVE)), updateOf(DistributionStatus.CANCELLED));
+    log.info("Distribution {} cancelled", job.getId());
+  }
+
+  public void limitSendRate(Double maxSendRate) {
+    var update =
+        maxSendRate == null
+            ? new Update().unset("maxSendRate")
+            : new Update().set("maxSendRate", maxSendRate);
+
+    var job = change(query(where("status").in(ACTIVE)), update);
+    rateController.limitTo(maxSendRate);
+    log.info("Distribution {} send rate limited to {}/s", job.getId(), maxSendRate);
+  }
+
+  static DistributionProgress progressOf(
+      DistributionJob job, List<DistributionRange> jobRanges, long numDeadLetters, Instant now) {
+    var numSent = jobRanges.stream().mapToLong(DistributionRange::getNumSent).sum();
+    var numFailed = jobRanges.stream().mapToLong(DistributionRange::getNumFailed).sum();
+    var numSkipped =
+        jobRanges.isEmpty()
+            ? job.getNumSkipped()
+            : jobRanges.stream().mapToLong(DistributionRange::getNumSkipped).sum();
+    var numAttempted = numSent + numFailed;
+    var numProcessed = numAttempted + numSkipped;
+    var isRunning = job.getStatus() == DistributionStatus.RUNNING;
+
+    Double sendRate = null;
+    Instant estimatedCompletionAt = null;
+    var until = isRunning ? now : job.getModifiedAt();
+    if (job.getResumedAt() != null && until != null && until.isAfter(job.getResumedAt())) {
+      var seconds = Duration.between(job.getResumedAt(), until).toMillis() / 1000.0;
+      sendRate = (numAttempted - job.getNumAttemptedAtResume()) / seconds;
+    }
+    if (isRunning && sendRate != null && sendRate > 0) {
+      var numRemaining = Math.max(0, job.getNumRecipients() - numProcessed);
+      estimatedCompletionAt = now.plusMillis((long) (numRemaining / sendRate * 1000));
+    }
+
+    return new DistributionProgress(
+        job.getId(),
+        job.getStatus(),
+        job.getNumRecipients(),
+        numProcessed,
+        numSent,
+        numFailed,
+        numSkipped,
+        numDeadLetters,
+        sendRate,
+        job.getMaxSendRate(),
+        job.getCreatedAt(),
+        estimatedCompletionAt);
+  }
+
+  private DistributionJob change(Query query, Update update) {
+    var job =
+        mongoTemplate.findAndModify(
+            query, update.inc("version", 1), options().returnNew(true), DistributionJob.class);
+    if (job == null) {
+      throw new DistributionStateException();
+    }
+
+    return job;
+  }
+
+  private static Update updateOf(DistributionStatus status) {
+    return new Update().set("status", status).set("modifiedAt", Instant.now());
+  }
+
+  private static long numAttemptedOf(List<DistributionRange> jobRanges) {
+    return jobRanges.stream().mapToLong(r -> r.getNumSent() + r.getNumFailed()).sum();
+  }
+}
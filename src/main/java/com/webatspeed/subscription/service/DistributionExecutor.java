@@ -0,0 +1,35 @@
+package com.webatspeed.subscription.service;
+
+import com.webatspeed.subscription.config.MailConfiguration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+@Component
+public class DistributionExecutor implements DisposableBean {
+
+  private static final int AWAIT_TERMINATION_SECONDS = 30;
+
+  private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+  public DistributionExecutor(MailConfiguration mailConfiguration) {
+    var concurrency = mailConfiguration.getDistributionConcurrency();
+    executor.setCorePoolSize(concurrency);
+    executor.setMaxPoolSize(concurrency);
+    executor.setThreadNamePrefix("distribution-");
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.setAwaitTerminationSeconds(AWAIT_TERMINATION_SECONDS);
+    executor.initialize();
+  }
+
+  public <T> CompletableFuture<T> submit(Supplier<T> task) {
+    return CompletableFuture.supplyAsync(task, executor);
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,97 @@
+package com.webatspeed.subscription.service;
+
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import com.webatspeed.subscription.config.MailConfiguration;
+import com.webatspeed.subscription.model.Lease;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DistributionLease {
+
+  private static final String LEASE_ID = "distribution";
+
+  private final MongoTemplate mongoTemplate;
+
+  private final MailConfiguration mailConfiguration;
+
+  private final Clock clock;
+
+  private final String holder = UUID.randomUUID().toString();
+
+  private volatile boolean isHeld = false;
+
+  public boolean tryAcquire() {
+    var now = Instant.now(clock);
+    var query =
+        query(
+            where("id")
+                .is(LEASE_ID)
+                .orOperator(where("expiresAt").lt(now), where("holder").is(holder)));
+
+    try {
+      mongoTemplate.findAndModify(
+          query, renewalOf(now), options().upsert(true).returnNew(true), Lease.class);
+      isHeld = true;
+      log.info("Distribution lease acquired by {}", holder);
+    } catch (DuplicateKeyException e) {
+      isHeld = false;
+    }
+
+    return isHeld;
+  }
+
+  @Scheduled(fixedDelayString = "#{@mailConfiguration.distributionLeaseTtl.dividedBy(3).toMillis()}")
+  public void heartbeat() {
+    if (!isHeld) {
+      return;
+    }
+
+    var now = Instant.now(clock);
+    var lease =
+        mongoTemplate.findAndModify(
+            query(heldByMe()), renewalOf(now), options().returnNew(true), Lease.class);
+    if (lease == null) {
+      isHeld = false;
+      log.warn("Distribution lease of {} was lost", holder);
+    }
+  }
+
+  public void release() {
+    isHeld = false;
+    mongoTemplate.remove(query(heldByMe()), Lease.class);
+  }
+
+  public boolean isHeld() {
+    return isHeld;
+  }
+
+  public boolean isActive() {
+    return mongoTemplate.exists(
+        query(where("id").is(LEASE_ID).and("expiresAt").gt(Instant.now(clock))), Lease.class);
+  }
+
+  private Criteria heldByMe() {
+    return where("id").is(LEASE_ID).and("holder").is(holder);
+  }
+
+  private Update renewalOf(Instant now) {
+    return new Update()
+        .set("holder", holder)
+        .set("expiresAt", now.plus(mailConfiguration.getDistributionLeaseTtl()));
+  }
+}
@@ -0,0 +1,6 @@
+package com.webatspeed.subscription.service;
+
+public enum DistributionMode {
+  RAW,
+  BULK
+}
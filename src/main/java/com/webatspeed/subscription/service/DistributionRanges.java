@@ -0,0 +1,189 @@
+package com.webatspeed.subscription.service;
+
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import com.webatspeed.subscription.config.MailConfiguration;
+import com.webatspeed.subscription.model.DistributionJob;
+import com.webatspeed.subscription.model.DistributionRange;
+import com.webatspeed.subscription.model.RangeStatus;
+import com.webatspeed.subscription.model.Subscription;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AccumulatorOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DistributionRanges {
+
+  private static final List<RangeStatus> UNFINISHED =
+      List.of(RangeStatus.PENDING, RangeStatus.CLAIMED);
+
+  private final MongoTemplate mongoTemplate;
+
+  private final MailConfiguration mailConfiguration;
+
+  private final String worker = UUID.randomUUID().toString();
+
+  public List<DistributionRange> plan(DistributionJob job) {
+    var aggregation =
+        newAggregation(
+            Subscription.class,
+            match(where("confirmedByOwner").is(true)),
+            bucketAuto("_id", mailConfiguration.getDistributionRanges())
+                .andOutput(AccumulatorOperators.Max.maxOf("_id"))
+                .as("last"));
+    var buckets = mongoTemplate.aggregate(aggregation, Subscription.class, Document.class);
+
+    var ranges = new ArrayList<DistributionRange>();
+    String lastId = null;
+    for (var bucket : buckets) {
+      var upToId = bucket.get("last").toString();
+      ranges.add(new DistributionRange(job.getId(), lastId, upToId));
+      lastId = upToId;
+    }
+    if (ranges.isEmpty()) {
+      ranges.add(new DistributionRange(job.getId(), null, null));
+    } else {
+      ranges.get(ranges.size() - 1).setUpToId(null);
+    }
+
+    log.info("Distribution {} split into {} ranges", job.getId(), ranges.size());
+    return List.copyOf(mongoTemplate.insertAll(ranges));
+  }
+
+  public Optional<DistributionRange> claim(String jobId) {
+    var now = Instant.now();
+    var claimable =
+        new Criteria()
+            .orOperator(
+                where("status").is(RangeStatus.PENDING),
+                where("status").is(RangeStatus.CLAIMED).and("claimExpiresAt").lt(now));
+    var update =
+        new Update()
+            .set("status", RangeStatus.CLAIMED)
+            .set("claimedBy", worker)
+            .set("claimExpiresAt", expiryOf(now));
+
+    var range =
+        mongoTemplate.findAndModify(
+            query(where("jobId").is(jobId).andOperator(claimable)),
+            update,
+            options().returnNew(true),
+            DistributionRange.class);
+
+    return Optional.ofNullable(range);
+  }
+
+  public boolean checkpoint(DistributionRange range) {
+    var update =
+        new Update()
+            .set("lastSubscriptionId", range.getLastSubscriptionId())
+            .set("numSent", range.getNumSent())
+            .set("numFailed", range.getNumFailed())
+            .set("numSkipped", range.getNumSkipped())
+            .set("claimExpiresAt", expiryOf(Instant.now()));
+
+    return updateClaimed(range, update);
+  }
+
+  public boolean complete(DistributionRange range) {
+    return updateClaimed(range, finishOf(range, RangeStatus.COMPLETED));
+  }
+
+  public boolean fail(DistributionRange range) {
+    return updateClaimed(range, finishOf(range, RangeStatus.FAILED));
+  }
+
+  public void release(DistributionRange range) {
+    var update =
+        new Update()
+            .set("status", RangeStatus.PENDING)
+            .unset("claimedBy")
+            .unset("claimExpiresAt");
+
+    updateClaimed(range, update);
+  }
+
+  public void retryFailed(String jobId) {
+    mongoTemplate.updateMulti(
+        query(where("jobId").is(jobId).and("status").is(RangeStatus.FAILED)),
+        new Update().set("status", RangeStatus.PENDING),
+        DistributionRange.class);
+  }
+
+  public boolean isFinished(String jobId) {
+    return !mongoTemplate.exists(
+        query(where("jobId").is(jobId).and("status").in(UNFINISHED)), DistributionRange.class);
+  }
+
+  public List<DistributionRange> rangesOf(String jobId) {
+    return mongoTemplate.find(query(where("jobId").is(jobId)), DistributionRange.class);
+  }
+
+  public int numActiveWorkers(String jobId) {
+    var active =
+        query(
+            where("jobId")
+                .is(jobId)
+                .and("status")
+                .is(RangeStatus.CLAIMED)
+                .and("claimExpiresAt")
+                .gt(Instant.now()));
+
+    return mongoTemplate
+        .findDistinct(active, "claimedBy", DistributionRange.class, String.class)
+        .size();
+  }
+
+  @Scheduled(fixedDelayString = "#{@mailConfiguration.distributionLeaseTtl.dividedBy(3).toMillis()}")
+  public void heartbeat() {
+    mongoTemplate.updateMulti(
+        query(where("claimedBy").is(worker).and("status").is(RangeStatus.CLAIMED)),
+        new Update().set("claimExpiresAt", expiryOf(Instant.now())),
+        DistributionRange.class);
+  }
+
+  private boolean updateClaimed(DistributionRange range, Update update) {
+    var claimed =
+        query(
+            where("id")
+                .is(range.getId())
+                .and("claimedBy")
+                .is(worker)
+                .and("status")
+                .is(RangeStatus.CLAIMED));
+
+    return mongoTemplate.updateFirst(claimed, update, DistributionRange.class).getMatchedCount()
+        > 0;
+  }
+
+  private static Update finishOf(DistributionRange range, RangeStatus status) {
+    return new Update()
+        .set("status", status)
+        .set("lastSubscriptionId", range.getLastSubscriptionId())
+        .set("numSent", range.getNumSent())
+        .set("numFailed", range.getNumFailed())
+        .set("numSkipped", range.getNumSkipped())
+        .unset("claimedBy")
+        .unset("claimExpiresAt");
+  }
+
+  private Instant expiryOf(Instant now) {
+    return now.plus(mailConfiguration.getDistributionLeaseTtl());
+  }
+}
@@ -0,0 +1,38 @@
+package com.webatspeed.subscription.service;
+
+import com.webatspeed.subscription.DistributionJobRepository;
+import com.webatspeed.subscription.model.DistributionStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DistributionResumer {
+
+  private final DistributionJobRepository jobRepository;
+
+  private final Subscriber subscriber;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void resumeInterruptedDistribution() {
+    if (jobRepository.existsByStatus(DistributionStatus.RUNNING)) {
+      log.info("Resuming interrupted distribution");
+      subscriber.distribute();
+    }
+  }
+
+  @Scheduled(
+      initialDelayString = "#{@mailConfiguration.distributionLeaseTtl.toMillis()}",
+      fixedDelayString = "#{@mailConfiguration.distributionLeaseTtl.toMillis()}")
+  public void joinRunningDistribution() {
+    if (jobRepository.existsByStatus(DistributionStatus.RUNNING) && !subscriber.isWorking()) {
+      log.info("Joining running distribution");
+      subscriber.distribute();
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package com.webatspeed.subscription.service;
+
+import com.webatspeed.subscription.config.MailConfiguration;
+import com.webatspeed.subscription.exception.TransientSendException;
+import io.github.resilience4j.ratelimiter.RequestNotPermitted;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+
+@Slf4j
+@Component
+public class DistributionRetries implements DisposableBean {
+
+  private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(1);
+
+  private static final int MAX_DOUBLINGS = 16;
+
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "distribution-retry"));
+
+  private final ExecutorService resender =
+      Executors.newCachedThreadPool(r -> new Thread(r, "distribution-resend"));
+
+  private final MailConfiguration mailConfiguration;
+
+  private final Semaphore capacity;
+
+  public DistributionRetries(MailConfiguration mailConfiguration) {
+    this.mailConfiguration = mailConfiguration;
+    capacity = new Semaphore(mailConfiguration.getDistributionRetryCapacity());
+  }
+
+  public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> send) {
+    var result = new CompletableFuture<T>();
+    attempt(send, 1, result);
+
+    return result;
+  }
+
+  public static boolean isTransient(Throwable failure) {
+    for (var cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof RequestNotPermitted
+          || cause instanceof SdkClientException
+          || cause instanceof TransientSendException) {
+        return true;
+      }
+      if (cause instanceof SdkServiceException e) {
+        return e.isThrottlingException() || e.statusCode() >= 500;
+      }
+    }
+
+    return false;
+  }
+
+  @Override
+  public void destroy() {
+    scheduler.shutdown();
+    resender.shutdown();
+  }
+
+  private <T> void attempt(
+      Supplier<CompletableFuture<T>> send, int numAttempt, CompletableFuture<T> result) {
+    onCompletion(dispatch(send), send, numAttempt, result);
+  }
+
+  private static <T> CompletableFuture<T> dispatch(Supplier<CompletableFuture<T>> send) {
+    try {
+      return send.get();
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  private <T> void onCompletion(
+      CompletableFuture<T> sent,
+      Supplier<CompletableFuture<T>> send,
+      int numAttempt,
+      CompletableFuture<T> result) {
+    sent.whenComplete(
+        (value, failure) -> {
+          if (failure == null) {
+            result.complete(value);
+          } else if (numAttempt >= mailConfiguration.getDistributionMaxAttempts()
+              || !isTransient(failure)
+              || !capacity.tryAcquire()) {
+            result.completeExceptionally(failure);
+          } else {
+            retryLater(send, numAttempt, result, failure);
+          }
+        });
+  }
+
+  private <T> void retryLater(
+      Supplier<CompletableFuture<T>> send,
+      int numAttempt,
+      CompletableFuture<T> result,
+      Throwable failure) {
+    var delay = delayOf(numAttempt);
+    log.debug("Send attempt {} failed, retrying in {}", numAttempt, delay, failure);
+    try {
+      scheduler.schedule(
+          () -> resend(send, numAttempt + 1, result, failure),
+          delay.toMillis(),
+          TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      capacity.release();
+      result.completeExceptionally(failure);
+    }
+  }
+
+  private <T> void resend(
+      Supplier<CompletableFuture<T>> send,
+      int numAttempt,
+      CompletableFuture<T> result,
+      Throwable failure) {
+    try {
+      resender.execute(
+          () -> {
+            var sent = dispatch(send);
+            capacity.release();
+            onCompletion(sent, send, numAttempt, result);
+          });
+    } catch (RejectedExecutionException e) {
+      capacity.release();
+      result.completeExceptionally(failure);
+    }
+  }
+
+  private Duration delayOf(int numAttempt) {
+    var backoff =
+        mailConfiguration
+            .getDistributionRetryDelay()
+            .multipliedBy(1L << Math.min(numAttempt - 1, MAX_DOUBLINGS));
+    var maxDelay = backoff.compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : backoff;
+
+    return Duration.ofMillis(ThreadLocalRandom.current().nextLong(maxDelay.toMillis() + 1));
+  }
+}
@@ -0,0 +1,31 @@
+package com.webatspeed.subscription.service;
+
+import com.webatspeed.subscription.config.MailConfiguration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+
+@Component
+public class DistributionWindow {
+
+  private final Semaphore inFlight;
+
+  public DistributionWindow(MailConfiguration mailConfiguration) {
+    inFlight = new Semaphore(mailConfiguration.getDistributionInFlight());
+  }
+
+  public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> send) {
+    inFlight.acquireUninterruptibly();
+
+    CompletableFuture<T> sent;
+    try {
+      sent = send.get();
+    } catch (RuntimeException e) {
+      inFlight.release();
+      return CompletableFuture.failedFuture(e);
+    }
+
+    return sent.whenComplete((result, failure) -> inFlight.release());
+  }
+}
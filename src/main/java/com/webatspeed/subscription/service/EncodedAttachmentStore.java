@@ -0,0 +1,106 @@
+package com.webatspeed.subscription.service;
+
+import com.webatspeed.subscription.config.MailConfiguration;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+public class EncodedAttachmentStore {
+
+  private static final String SUFFIX = ".b64";
+
+  private final Path directory;
+
+  private final Map<String, MappedByteBuffer> encoded = new ConcurrentHashMap<>();
+
+  public EncodedAttachmentStore(MailConfiguration mailConfiguration) {
+    directory = mailConfiguration.getAttachmentStore();
+  }
+
+  public ByteBuffer encodedOf(Attachment attachment) {
+    var digest = digestOf(attachment.content());
+
+    return encoded.computeIfAbsent(digest, d -> map(d, attachment.content())).asReadOnlyBuffer();
+  }
+
+  public void retainOnly(Collection<Attachment> attachments) {
+    var retained =
+        attachments.stream().map(a -> digestOf(a.content())).collect(Collectors.toSet());
+    encoded.keySet().removeIf(digest -> !retained.contains(digest));
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+
+    try (var files = Files.list(directory)) {
+      files
+          .filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+          .filter(file -> !retained.contains(digestOf(file)))
+          .forEach(this::delete);
+    } catch (IOException e) {
+      log.warn("Attachment store {} could not be cleaned up", directory, e);
+    }
+  }
+
+  private MappedByteBuffer map(String digest, byte[] content) {
+    var file = directory.resolve(digest + SUFFIX);
+    try {
+      if (!Files.exists(file)) {
+        Files.createDirectories(directory);
+        var temporary = Files.createTempFile(directory, digest, ".tmp");
+        try {
+          Files.write(temporary, Base64.getMimeEncoder().encode(content));
+          Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+          delete(temporary);
+        }
+        log.debug("Attachment {} encoded to {}", digest, file);
+      }
+
+      try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void delete(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      log.warn("Attachment file {} could not be deleted", file, e);
+    }
+  }
+
+  private static String digestOf(Path file) {
+    var name = file.getFileName().toString();
+
+    return name.substring(0, name.length() - SUFFIX.length());
+  }
+
+  private static String digestOf(byte[] content) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
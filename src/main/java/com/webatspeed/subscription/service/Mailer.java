@@ -1,21 +1,27 @@
 package com.webatspeed.subscription.service;
 
 import com.webatspeed.subscription.SubscriptionMapper;
+import com.webatspeed.subscription.config.AwsMetricsInterceptor;
 import com.webatspeed.subscription.config.MailConfiguration;
 import com.webatspeed.subscription.exception.EmailSendException;
-import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.github.resilience4j.ratelimiter.RequestNotPermitted;
 import jakarta.mail.MessagingException;
 import jakarta.mail.Session;
-import jakarta.mail.internet.MimeMultipart;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.sesv2.SesV2AsyncClient;
 import software.amazon.awssdk.services.sesv2.SesV2Client;
 import software.amazon.awssdk.services.sesv2.model.*;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static com.webatspeed.subscription.service.TemplateName.*;
 
@@ -24,14 +30,34 @@ import static com.webatspeed.subscription.service.TemplateName.*;
 @RequiredArgsConstructor
 public class Mailer {
 
+  public static final int MAX_BULK_DESTINATIONS = 50;
+
+  private static final String RATE_LIMITER = "ses";
+
+  private static final Session SESSION = Session.getInstance(new Properties());
+
   private final SesV2Client emailClient;
 
-  private final S3Client storageClient;
+  private final SesV2AsyncClient asyncEmailClient;
+
+  private final AttachmentCache attachmentCache;
+
+  private final TemplateCache templateCache;
+
+  private final TemplateRenderer templateRenderer;
+
+  private final MessageAssembler assembler;
 
   private final MailConfiguration mailConfiguration;
 
   private final SubscriptionMapper mapper;
 
+  private final RateLimiterRegistry rateLimiterRegistry;
+
+  private final SendRateController rateController;
+
+  private final SubscriptionMetrics metrics;
+
   public void emailPleaseConfirm(String to, String token) {
     var template = mapper.templateOf(to, token, PLEASE_CONFIRM);
     email(to, template);
@@ -47,65 +73,176 @@ public class Mailer {
     email(mailConfiguration.getDefaultSender(), template);
   }
 
-  @RateLimiter(name = "ses")
   public void emailCv(String to, String token, boolean isFirst) {
+    var from = mailConfiguration.getDefaultSender();
     var templateName = isFirst ? FIRST_CV : UPDATED_CV;
-    var renderRequest = mapper.renderRequestOf(to, token, templateName);
-    var renderedTemplate = emailClient.testRenderEmailTemplate(renderRequest).renderedTemplate();
-    var templateRequest = mapper.templateRequestOf(templateName);
-    var subject = emailClient.getEmailTemplate(templateRequest).templateContent().subject();
 
     try {
-      email(to, subject, renderedTemplate);
+      var content = cvContentOf(from, to, token, templateName);
+      acquirePermissions(1);
+      emailContent(rawRequestOf(from, to, content, templateName));
     } catch (MessagingException | IOException e) {
       throw new EmailSendException(e);
     }
   }
 
-  private void email(String to, Template template) {
-    var content = EmailContent.builder().template(template).build();
+  public CompletableFuture<Void> emailCvAsync(String to, String token) {
     var from = mailConfiguration.getDefaultSender();
-    emailContent(from, to, content);
+    SendEmailRequest request;
+    try {
+      request = rawRequestOf(from, to, cvContentOf(from, to, token, UPDATED_CV), UPDATED_CV);
+    } catch (MessagingException | IOException e) {
+      return CompletableFuture.failedFuture(new EmailSendException(e));
+    }
+    acquirePermissions(1);
+
+    return asyncEmailClient
+        .sendEmail(request)
+        .handle(
+            (response, failure) -> {
+              if (failure != null) {
+                throw sendFailureOf(failure);
+              }
+              rateController.onSent(1);
+              return null;
+            });
+  }
+
+  public Map<String, BulkEmailEntryResult> emailCvInBulk(Map<String, String> tokensByRecipient) {
+    acquirePermissions(tokensByRecipient.size());
+
+    var request = bulkRequestOf(tokensByRecipient);
+    List<BulkEmailEntryResult> entryResults;
+    try {
+      entryResults = emailClient.sendBulkEmail(request).bulkEmailEntryResults();
+    } catch (SesV2Exception e) {
+      rateController.onError(e);
+      throw new EmailSendException(e);
+    }
+
+    return resultsOf(tokensByRecipient, entryResults);
   }
 
-  private void email(String to, String subject, String renderedTemplate)
+  public CompletableFuture<Map<String, BulkEmailEntryResult>> emailCvInBulkAsync(
+      Map<String, String> tokensByRecipient) {
+    acquirePermissions(tokensByRecipient.size());
+
+    return asyncEmailClient
+        .sendBulkEmail(bulkRequestOf(tokensByRecipient))
+        .handle(
+            (response, failure) -> {
+              if (failure != null) {
+                throw sendFailureOf(failure);
+              }
+              return resultsOf(tokensByRecipient, response.bulkEmailEntryResults());
+            });
+  }
+
+  private EmailContent cvContentOf(String from, String to, String token, TemplateName templateName)
       throws MessagingException, IOException {
-    var session = Session.getDefaultInstance(new Properties());
-
-    var content = new MimeMultipart();
-    var textAndHtmlPart = mapper.bodyPartOf(renderedTemplate, session);
-    content.addBodyPart(textAndHtmlPart);
-
-    var listRequest = mapper.listRequestOf(mailConfiguration.getAttachmentBucket());
-    var listResponse = storageClient.listObjectsV2(listRequest);
-    for (var metaData : listResponse.contents()) {
-      var objectRequest = mapper.getRequest(listRequest.bucket(), metaData.key());
-      var objectBytes = storageClient.getObjectAsBytes(objectRequest);
-      var attachmentPart = mapper.bodyPartOf(objectBytes, metaData.key());
-      content.addBodyPart(attachmentPart);
+    var renderedTemplate = templateRenderer.render(templateName, to, token);
+    RawMessage rawMessage;
+    if (renderedTemplate.isPresent()) {
+      var skeleton = assembler.skeletonOf(from, attachmentCache.attachments());
+      rawMessage = assembler.rawMessageOf(skeleton, to, renderedTemplate.get());
+    } else {
+      var renderRequest = mapper.renderRequestOf(to, token, templateName);
+      var sesRenderedTemplate =
+          emailClient.testRenderEmailTemplate(renderRequest).renderedTemplate();
+      var subject = templateCache.contentOf(templateName).subject();
+      var renderedMessage = mapper.messageOf(sesRenderedTemplate, SESSION);
+      var skeleton = assembler.skeletonOf(from, attachmentCache.attachments());
+      rawMessage = assembler.rawMessageOf(skeleton, to, subject, renderedMessage);
     }
 
+    return EmailContent.builder().raw(rawMessage).build();
+  }
+
+  private SendBulkEmailRequest bulkRequestOf(Map<String, String> tokensByRecipient) {
     var from = mailConfiguration.getDefaultSender();
-    var rawMessage = mapper.rawMessageOf(from, to, subject, session, content);
-    var emailContent = EmailContent.builder().raw(rawMessage).build();
 
-    emailContent(from, to, emailContent);
+    return mapper.bulkRequestOf(from, UPDATED_CV, tokensByRecipient);
   }
 
-  private void emailContent(String from, String to, EmailContent content) {
-    var destination = Destination.builder().toAddresses(to).build();
-    var request =
-            SendEmailRequest.builder()
-                    .destination(destination)
-                    .content(content)
-                    .replyToAddresses(from)
-                    .fromEmailAddress(from)
-                    .build();
+  private Map<String, BulkEmailEntryResult> resultsOf(
+      Map<String, String> tokensByRecipient, List<BulkEmailEntryResult> entryResults) {
+    if (entryResults.stream().anyMatch(r -> r.status() == BulkEmailStatus.ACCOUNT_THROTTLED)) {
+      rateController.onThrottled();
+    } else {
+      rateController.onSent(entryResults.size());
+    }
+
+    var results = new LinkedHashMap<String, BulkEmailEntryResult>();
+    var recipients = tokensByRecipient.keySet().iterator();
+    for (var entryResult : entryResults) {
+      results.put(recipients.next(), entryResult);
+    }
+
+    return results;
+  }
+
+  private void acquirePermissions(int numPermits) {
+    var rateLimiter = rateLimiterRegistry.rateLimiter(RATE_LIMITER);
+    var start = System.nanoTime();
+    var isPermitted = true;
+    for (var numRemaining = numPermits; isPermitted && numRemaining > 0; ) {
+      var limit = rateLimiter.getRateLimiterConfig().getLimitForPeriod();
+      var numSlice = Math.min(numRemaining, Math.max(1, limit));
+      isPermitted = rateLimiter.acquirePermission(numSlice);
+      numRemaining -= numSlice;
+    }
+    metrics.recordRateLimiterWait(System.nanoTime() - start);
+    if (!isPermitted) {
+      throw RequestNotPermitted.createRequestNotPermitted(rateLimiter);
+    }
+  }
+
+  private RuntimeException sendFailureOf(Throwable failure) {
+    var cause = failure instanceof CompletionException ? failure.getCause() : failure;
+    if (cause instanceof SesV2Exception sesException) {
+      rateController.onError(sesException);
+    }
+
+    return cause instanceof Exception exception
+        ? new EmailSendException(exception)
+        : new CompletionException(cause);
+  }
 
+  private void email(String to, Template template) {
+    var content = EmailContent.builder().template(template).build();
+    var from = mailConfiguration.getDefaultSender();
+    emailContent(sendRequestOf(from, to, content));
+  }
+
+  private void emailContent(SendEmailRequest request) {
     try {
       emailClient.sendEmail(request);
+      rateController.onSent(1);
     } catch (SesV2Exception e) {
+      rateController.onError(e);
       throw new EmailSendException(e);
     }
   }
+
+  private static SendEmailRequest sendRequestOf(String from, String to, EmailContent content) {
+    return requestOf(from, to, content).build();
+  }
+
+  private static SendEmailRequest rawRequestOf(
+      String from, String to, EmailContent content, TemplateName templateName) {
+    return requestOf(from, to, content)
+        .overrideConfiguration(
+            o -> o.putExecutionAttribute(AwsMetricsInterceptor.TEMPLATE, templateName.toString()))
+        .build();
+  }
+
+  private static SendEmailRequest.Builder requestOf(String from, String to, EmailContent content) {
+    var destination = Destination.builder().toAddresses(to).build();
+
+    return SendEmailRequest.builder()
+        .destination(destination)
+        .content(content)
+        .replyToAddresses(from)
+        .fromEmailAddress(from);
+  }
 }
@@ -0,0 +1,70 @@
+package com.webatspeed.subscription.service;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.sesv2.model.RawMessage;
+
+@Service
+@RequiredArgsConstructor
+public class MessageAssembler {
+
+  private static final int HEADER_RESERVE = 512;
+
+  private final EncodedAttachmentStore attachmentStore;
+
+  private final AtomicReference<MessageSkeleton> skeleton = new AtomicReference<>();
+
+  public MessageSkeleton skeletonOf(String from, List<Attachment> attachments)
+      throws MessagingException {
+    var current = skeleton.get();
+    if (current != null && current.isFor(from, attachments)) {
+      return current;
+    }
+
+    var built = MessageSkeleton.of(from, attachments, attachmentStore);
+    skeleton.set(built);
+    attachmentStore.retainOnly(attachments);
+
+    return built;
+  }
+
+  public RawMessage rawMessageOf(
+      MessageSkeleton skeleton, String to, RenderedTemplate renderedTemplate)
+      throws MessagingException {
+    var text = renderedTemplate.text();
+    var html = renderedTemplate.html();
+    var personalizedLength =
+        HEADER_RESERVE + 3 * ((text == null ? 0 : text.length()) + (html == null ? 0 : html.length()));
+
+    var out = new MessageBuffer(personalizedLength);
+    skeleton.writeHead(out, to, renderedTemplate.subject());
+    skeleton.writeAlternative(out, text, html);
+
+    return rawMessageOf(skeleton.messageOf(out));
+  }
+
+  public RawMessage rawMessageOf(
+      MessageSkeleton skeleton, String to, String subject, MimeMessage renderedMessage)
+      throws MessagingException, IOException {
+    byte[] content;
+    try (var contentStream = renderedMessage.getRawInputStream()) {
+      content = contentStream.readAllBytes();
+    }
+
+    var out = new MessageBuffer(HEADER_RESERVE + content.length);
+    skeleton.writeHead(out, to, subject);
+    skeleton.writeBodyPart(out, renderedMessage.getContentType(), content);
+
+    return rawMessageOf(skeleton.messageOf(out));
+  }
+
+  private static RawMessage rawMessageOf(byte[] message) {
+    return RawMessage.builder().data(SdkBytes.fromByteArrayUnsafe(message)).build();
+  }
+}
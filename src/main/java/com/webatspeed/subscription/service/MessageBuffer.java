@@ -0,0 +1,15 @@
+package com.webatspeed.subscription.service;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+public class MessageBuffer extends ByteArrayOutputStream {
+
+  public MessageBuffer(int size) {
+    super(size);
+  }
+
+  public synchronized byte[] toByteArray(int reserve) {
+    return Arrays.copyOf(buf, count + reserve);
+  }
+}
@@ -0,0 +1,247 @@
+package com.webatspeed.subscription.service;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.ContentDisposition;
+import jakarta.mail.internet.ContentType;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeUtility;
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public final class MessageSkeleton {
+
+  private static final byte[] CRLF = {'\r', '\n'};
+
+  private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+  private static final int MAX_LINE_LENGTH = 76;
+
+  private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+  private final String from;
+
+  private final List<Attachment> attachments;
+
+  private final byte[] head;
+
+  private final byte[] bodyOpen;
+
+  private final byte[] alternativeOpen;
+
+  private final byte[] textPartOpen;
+
+  private final byte[] htmlPartOpen;
+
+  private final byte[] alternativeClose;
+
+  private final List<ByteBuffer> tail;
+
+  private final int tailLength;
+
+  private MessageSkeleton(
+      String from, List<Attachment> attachments, EncodedAttachmentStore attachmentStore)
+      throws MessagingException {
+    this.from = from;
+    this.attachments = List.copyOf(attachments);
+
+    var mixedBoundary = boundaryOf("Mixed");
+    var alternativeBoundary = boundaryOf("Alternative");
+
+    head =
+        bytesOf(
+            "From: "
+                + MimeUtility.fold(6, new InternetAddress(from).toString())
+                + "\r\nMIME-Version: 1.0\r\nContent-Type: multipart/mixed;\r\n\tboundary=\""
+                + mixedBoundary
+                + "\"\r\n");
+    bodyOpen = bytesOf("\r\n--" + mixedBoundary + "\r\n");
+    alternativeOpen =
+        bytesOf(
+            "Content-Type: multipart/alternative;\r\n\tboundary=\""
+                + alternativeBoundary
+                + "\"\r\n\r\n");
+    textPartOpen = bytesOf(partOpenOf(alternativeBoundary, "text/plain"));
+    htmlPartOpen = bytesOf(partOpenOf(alternativeBoundary, "text/html"));
+    alternativeClose = bytesOf("--" + alternativeBoundary + "--\r\n");
+    tail = tailOf(mixedBoundary, this.attachments, attachmentStore);
+    tailLength = tail.stream().mapToInt(ByteBuffer::remaining).sum();
+  }
+
+  public static MessageSkeleton of(
+      String from, List<Attachment> attachments, EncodedAttachmentStore attachmentStore)
+      throws MessagingException {
+    return new MessageSkeleton(from, attachments, attachmentStore);
+  }
+
+  public boolean isFor(String from, List<Attachment> attachments) {
+    return this.from.equals(from) && this.attachments.equals(attachments);
+  }
+
+  public void writeHead(ByteArrayOutputStream out, String to, String subject)
+      throws MessagingException {
+    out.writeBytes(head);
+    out.writeBytes(bytesOf("To: " + MimeUtility.fold(4, new InternetAddress(to).toString())));
+    out.writeBytes(CRLF);
+    out.writeBytes(bytesOf("Subject: " + MimeUtility.fold(9, encodedTextOf(subject))));
+    out.writeBytes(CRLF);
+    out.writeBytes(bodyOpen);
+  }
+
+  public void writeAlternative(ByteArrayOutputStream out, String text, String html) {
+    out.writeBytes(alternativeOpen);
+    if (text != null) {
+      out.writeBytes(textPartOpen);
+      writeQuotedPrintable(out, text);
+      out.writeBytes(CRLF);
+    }
+    if (html != null) {
+      out.writeBytes(htmlPartOpen);
+      writeQuotedPrintable(out, html);
+      out.writeBytes(CRLF);
+    }
+    out.writeBytes(alternativeClose);
+  }
+
+  public void writeBodyPart(ByteArrayOutputStream out, String contentType, byte[] content) {
+    out.writeBytes(bytesOf("Content-Type: " + MimeUtility.fold(14, contentType)));
+    out.writeBytes(CRLF);
+    out.writeBytes(CRLF);
+    out.writeBytes(content);
+    if (content.length == 0 || content[content.length - 1] != '\n') {
+      out.writeBytes(CRLF);
+    }
+  }
+
+  public byte[] messageOf(MessageBuffer out) {
+    var message = out.toByteArray(tailLength);
+    var offset = out.size();
+    for (var segment : tail) {
+      var length = segment.remaining();
+      segment.get(segment.position(), message, offset, length);
+      offset += length;
+    }
+
+    return message;
+  }
+
+  static void writeQuotedPrintable(ByteArrayOutputStream out, String text) {
+    var length = text.length();
+    var lineLength = 0;
+
+    for (int i = 0; i < length; i++) {
+      var c = text.charAt(i);
+      if (c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+        continue;
+      }
+      if (c == '\n') {
+        out.writeBytes(CRLF);
+        lineLength = 0;
+        continue;
+      }
+
+      if (c < 0x80) {
+        var isLineEnd = i + 1 == length || text.charAt(i + 1) == '\r' || text.charAt(i + 1) == '\n';
+        var isLiteral =
+            (c >= 33 && c <= 126 && c != '=') || ((c == ' ' || c == '\t') && !isLineEnd);
+        lineLength = writeQuoted(out, c, isLiteral, lineLength);
+      } else if (c < 0x800) {
+        lineLength = writeQuoted(out, 0xc0 | (c >> 6), false, lineLength);
+        lineLength = writeQuoted(out, 0x80 | (c & 0x3f), false, lineLength);
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < length
+          && Character.isLowSurrogate(text.charAt(i + 1))) {
+        var codePoint = Character.toCodePoint(c, text.charAt(++i));
+        lineLength = writeQuoted(out, 0xf0 | (codePoint >> 18), false, lineLength);
+        lineLength = writeQuoted(out, 0x80 | ((codePoint >> 12) & 0x3f), false, lineLength);
+        lineLength = writeQuoted(out, 0x80 | ((codePoint >> 6) & 0x3f), false, lineLength);
+        lineLength = writeQuoted(out, 0x80 | (codePoint & 0x3f), false, lineLength);
+      } else if (Character.isSurrogate(c)) {
+        lineLength = writeQuoted(out, '?', true, lineLength);
+      } else {
+        lineLength = writeQuoted(out, 0xe0 | (c >> 12), false, lineLength);
+        lineLength = writeQuoted(out, 0x80 | ((c >> 6) & 0x3f), false, lineLength);
+        lineLength = writeQuoted(out, 0x80 | (c & 0x3f), false, lineLength);
+      }
+    }
+  }
+
+  private static int writeQuoted(
+      ByteArrayOutputStream out, int b, boolean isLiteral, int lineLength) {
+    var width = isLiteral ? 1 : 3;
+    if (lineLength + width >= MAX_LINE_LENGTH) {
+      out.write('=');
+      out.writeBytes(CRLF);
+      lineLength = 0;
+    }
+
+    if (isLiteral) {
+      out.write(b);
+    } else {
+      out.write('=');
+      out.write(HEX[b >> 4]);
+      out.write(HEX[b & 0x0f]);
+    }
+
+    return lineLength + width;
+  }
+
+  private static List<ByteBuffer> tailOf(
+      String mixedBoundary, List<Attachment> attachments, EncodedAttachmentStore attachmentStore)
+      throws MessagingException {
+    var segments = new ArrayList<ByteBuffer>();
+
+    for (var attachment : attachments) {
+      var contentType =
+          new ContentType(
+              attachment.contentType() == null ? DEFAULT_CONTENT_TYPE : attachment.contentType());
+      contentType.setParameter("name", attachment.key());
+      var disposition = new ContentDisposition("attachment");
+      disposition.setParameter("filename", attachment.key());
+
+      var out = new ByteArrayOutputStream();
+      out.writeBytes(bytesOf("--" + mixedBoundary + "\r\n"));
+      out.writeBytes(bytesOf("Content-Type: " + MimeUtility.fold(14, contentType.toString())));
+      out.writeBytes(CRLF);
+      out.writeBytes(bytesOf("Content-Transfer-Encoding: base64\r\n"));
+      out.writeBytes(
+          bytesOf("Content-Disposition: " + MimeUtility.fold(21, disposition.toString())));
+      out.writeBytes(CRLF);
+      out.writeBytes(CRLF);
+      segments.add(ByteBuffer.wrap(out.toByteArray()));
+      segments.add(attachmentStore.encodedOf(attachment));
+      segments.add(ByteBuffer.wrap(CRLF));
+    }
+    segments.add(ByteBuffer.wrap(bytesOf("--" + mixedBoundary + "--\r\n")));
+
+    return List.copyOf(segments);
+  }
+
+  private static String partOpenOf(String boundary, String mimeType) {
+    return "--"
+        + boundary
+        + "\r\nContent-Type: "
+        + mimeType
+        + "; charset=UTF-8\r\nContent-Transfer-Encoding: quoted-printable\r\n\r\n";
+  }
+
+  private static String boundaryOf(String name) {
+    return "----=_" + name + "_" + UUID.randomUUID();
+  }
+
+  private static String encodedTextOf(String text) throws MessagingException {
+    try {
+      return MimeUtility.encodeText(text, StandardCharsets.UTF_8.name(), null);
+    } catch (UnsupportedEncodingException e) {
+      throw new MessagingException("Unsupported encoding", e);
+    }
+  }
+
+  private static byte[] bytesOf(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
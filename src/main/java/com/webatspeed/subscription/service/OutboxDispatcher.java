@@ -0,0 +1,187 @@
+package com.webatspeed.subscription.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import com.webatspeed.subscription.config.MailConfiguration;
+import com.webatspeed.subscription.model.OutboxEmail;
+import com.webatspeed.subscription.model.Subscription;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Service
+public class OutboxDispatcher implements DisposableBean {
+
+  private static final int BATCH_SIZE = 100;
+
+  private static final Duration CLAIM_DURATION = Duration.ofMinutes(1);
+
+  private static final Duration MAX_RETRY_DELAY = Duration.ofHours(1);
+
+  private final MongoTemplate mongoTemplate;
+
+  private final Mailer mailer;
+
+  private final MailConfiguration mailConfiguration;
+
+  private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+  private final AtomicBoolean isQueued = new AtomicBoolean();
+
+  public OutboxDispatcher(
+      MongoTemplate mongoTemplate, Mailer mailer, MailConfiguration mailConfiguration) {
+    this.mongoTemplate = mongoTemplate;
+    this.mailer = mailer;
+    this.mailConfiguration = mailConfiguration;
+    executor.setCorePoolSize(1);
+    executor.setMaxPoolSize(1);
+    executor.setThreadNamePrefix("outbox-");
+    executor.initialize();
+  }
+
+  public void wake() {
+    enqueue();
+  }
+
+  @Scheduled(fixedDelayString = "#{@mailConfiguration.outboxPollInterval.toMillis()}")
+  public void poll() {
+    enqueue();
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdown();
+  }
+
+  private void enqueue() {
+    if (!isQueued.compareAndSet(false, true)) {
+      return;
+    }
+
+    try {
+      executor.execute(
+          () -> {
+            isQueued.set(false);
+            dispatch();
+          });
+    } catch (RejectedExecutionException e) {
+      isQueued.set(false);
+      log.debug("Outbox dispatch rejected while shutting down");
+    }
+  }
+
+  public void dispatch() {
+    var now = Instant.now();
+    var due = query(where("outbox.nextAttemptAt").lte(now)).limit(BATCH_SIZE);
+
+    mongoTemplate.find(due, Subscription.class).forEach(s -> dispatch(s, now));
+  }
+
+  private void dispatch(Subscription subscription, Instant now) {
+    for (var email : subscription.getOutbox()) {
+      var numAttempts = email.isDue(now) ? claim(subscription, email, now) : 0;
+      if (numAttempts == 0) {
+        return;
+      }
+
+      try {
+        send(subscription, email);
+      } catch (RuntimeException e) {
+        if (numAttempts >= mailConfiguration.getOutboxMaxAttempts()) {
+          log.error(
+              "Outbox email {} to {} dropped after {} attempts",
+              email.getTemplateName(),
+              subscription.getEmail(),
+              numAttempts,
+              e);
+          remove(subscription, email);
+          continue;
+        }
+        retryLater(subscription, email, numAttempts);
+        log.warn(
+            "Outbox email {} to {} failed on attempt {}",
+            email.getTemplateName(),
+            subscription.getEmail(),
+            numAttempts,
+            e);
+        return;
+      }
+
+      remove(subscription, email);
+    }
+  }
+
+  private void remove(Subscription subscription, OutboxEmail email) {
+    mongoTemplate.updateFirst(
+        query(where("id").is(subscription.getId())),
+        new Update().pull("outbox", new Document("outboxId", email.getOutboxId())),
+        Subscription.class);
+  }
+
+  private int claim(Subscription subscription, OutboxEmail email, Instant now) {
+    var claimable =
+        query(
+            where("id")
+                .is(subscription.getId())
+                .and("outbox")
+                .elemMatch(
+                    where("outboxId").is(email.getOutboxId()).and("nextAttemptAt").lte(now)));
+    var update =
+        new Update()
+            .set("outbox.$.nextAttemptAt", now.plus(CLAIM_DURATION))
+            .inc("outbox.$.numAttempts", 1);
+
+    var claimed =
+        mongoTemplate.findAndModify(
+            claimable, update, FindAndModifyOptions.options().returnNew(true), Subscription.class);
+    if (claimed == null) {
+      return 0;
+    }
+
+    return claimed.getOutbox().stream()
+        .filter(claimedEmail -> claimedEmail.getOutboxId().equals(email.getOutboxId()))
+        .mapToInt(OutboxEmail::getNumAttempts)
+        .findFirst()
+        .orElse(0);
+  }
+
+  private void retryLater(Subscription subscription, OutboxEmail email, int numAttempts) {
+    var attempt = Math.min(numAttempts - 1, 20);
+    var delay = mailConfiguration.getOutboxRetryDelay().multipliedBy(1L << attempt);
+    if (delay.compareTo(MAX_RETRY_DELAY) > 0) {
+      delay = MAX_RETRY_DELAY;
+    }
+
+    mongoTemplate.updateFirst(
+        query(
+            where("id")
+                .is(subscription.getId())
+                .and("outbox")
+                .elemMatch(where("outboxId").is(email.getOutboxId()))),
+        new Update().set("outbox.$.nextAttemptAt", Instant.now().plus(delay)),
+        Subscription.class);
+  }
+
+  private void send(Subscription subscription, OutboxEmail email) {
+    var to = subscription.getEmail();
+    switch (email.getTemplateName()) {
+      case PLEASE_CONFIRM -> mailer.emailPleaseConfirm(to, subscription.getUserConfirmationToken());
+      case PLEASE_WAIT -> mailer.emailPleaseWait(to);
+      case PLEASE_APPROVE -> mailer.emailPleaseApprove(to, subscription.getOwnerConfirmationToken());
+      case FIRST_CV -> mailer.emailCv(to, subscription.getUserUnsubscribeToken(), true);
+      case UPDATED_CV -> mailer.emailCv(to, subscription.getUserUnsubscribeToken(), false);
+    }
+  }
+}
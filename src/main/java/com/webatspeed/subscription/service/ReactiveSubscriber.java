@@ -0,0 +1,105 @@
+package com.webatspeed.subscription.service;
+
+import com.webatspeed.subscription.ReactiveSubscriptionRepository;
+import com.webatspeed.subscription.config.MailConfiguration;
+import com.webatspeed.subscription.exception.FalseTokenException;
+import com.webatspeed.subscription.exception.UserAlreadyExistsException;
+import com.webatspeed.subscription.exception.UserUnknownOrLockedException;
+import com.webatspeed.subscription.model.Subscription;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveSubscriber {
+
+  private final ReactiveSubscriptionRepository repository;
+
+  private final Subscriber subscriber;
+
+  private final OutboxDispatcher outboxDispatcher;
+
+  private final MailConfiguration mailConfiguration;
+
+  private final SubscriptionMetrics metrics;
+
+  public Mono<Void> initiateToken(Subscription subscription) {
+    subscription.enqueue(TemplateName.PLEASE_CONFIRM);
+
+    return repository
+        .insert(subscription)
+        .onErrorMap(DuplicateKeyException.class, e -> new UserAlreadyExistsException())
+        .doOnSuccess(inserted -> outboxDispatcher.wake())
+        .then();
+  }
+
+  public Mono<Void> applyUpdateToken(String email, String token) {
+    var maxErrors = mailConfiguration.getMaxErrors();
+
+    return repository
+        .findAndApplyUpdateToken(email, token, maxErrors)
+        .switchIfEmpty(Mono.error(UserUnknownOrLockedException::new))
+        .flatMap(
+            subscription -> {
+              if (subscription.getNumTokenErrors() > 0) {
+                metrics.onTokenFailure("update", subscription.getNumTokenErrors() >= maxErrors);
+                return Mono.<Void>error(new FalseTokenException());
+              }
+              return Mono.<Void>fromRunnable(outboxDispatcher::wake);
+            })
+        .then();
+  }
+
+  public Mono<Void> applyDeleteToken(String email, String token) {
+    var maxErrors = mailConfiguration.getMaxErrors();
+
+    return repository
+        .deleteByUnsubscribeToken(email, token, maxErrors)
+        .flatMap(isDeleted -> isDeleted ? Mono.<Void>empty() : rejectDeleteToken(email, maxErrors));
+  }
+
+  public Mono<Boolean> distribute() {
+    return startUnlessDistributing(subscriber::distribute);
+  }
+
+  public Mono<Boolean> replayDeadLetters() {
+    return startUnlessDistributing(subscriber::replayDeadLetters);
+  }
+
+  private Mono<Boolean> startUnlessDistributing(Runnable start) {
+    return Mono.fromCallable(
+            () -> {
+              if (subscriber.isDistributing()) {
+                return false;
+              }
+              start.run();
+              return true;
+            })
+        .subscribeOn(Schedulers.boundedElastic());
+  }
+
+  private Mono<Void> rejectDeleteToken(String email, int maxErrors) {
+    return repository
+        .incNumTokenErrors(email, maxErrors)
+        .flatMap(
+            counted -> {
+              metrics.onTokenFailure("delete", counted.getNumTokenErrors() >= maxErrors);
+              return Mono.<Void>error(new FalseTokenException());
+            })
+        .switchIfEmpty(
+            Mono.defer(
+                () ->
+                    repository
+                        .existsByEmail(email)
+                        .flatMap(
+                            exists ->
+                                exists
+                                    ? Mono.<Void>error(new UserUnknownOrLockedException())
+                                    : Mono.empty())));
+  }
+}
@@ -0,0 +1,3 @@
+package com.webatspeed.subscription.service;
+
+public record RenderedTemplate(String subject, String text, String html) {}
@@ -0,0 +1,73 @@
+package com.webatspeed.subscription.service;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import com.webatspeed.subscription.model.SendLedgerEntry;
+import com.webatspeed.subscription.model.Subscription;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+public class SendLedger {
+
+  private static final String ENTRIES = "entries";
+
+  private final MongoTemplate mongoTemplate;
+
+  public boolean isDelivered(String contentFingerprint) {
+    var aggregation =
+        newAggregation(
+            match(where("confirmedByOwner").is(true)),
+            lookup(mongoTemplate.getCollectionName(SendLedgerEntry.class), "_id", "_id", ENTRIES),
+            match(where(ENTRIES + ".contentFingerprint").ne(contentFingerprint)),
+            limit(1));
+    var undelivered =
+        mongoTemplate.aggregate(
+            aggregation, mongoTemplate.getCollectionName(Subscription.class), Document.class);
+
+    return undelivered.getMappedResults().isEmpty();
+  }
+
+  public Set<String> deliveredOf(String contentFingerprint, Collection<String> subscriptionIds) {
+    var delivered =
+        query(
+            where("subscriptionId")
+                .in(subscriptionIds)
+                .and("contentFingerprint")
+                .is(contentFingerprint));
+    delivered.fields().include("subscriptionId");
+
+    return mongoTemplate.find(delivered, SendLedgerEntry.class).stream()
+        .map(SendLedgerEntry::getSubscriptionId)
+        .collect(Collectors.toSet());
+  }
+
+  public void record(String contentFingerprint, String jobId, Collection<String> subscriptionIds) {
+    if (subscriptionIds.isEmpty()) {
+      return;
+    }
+
+    var now = Instant.now();
+    var bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SendLedgerEntry.class);
+    for (var subscriptionId : subscriptionIds) {
+      bulk.upsert(
+          query(where("subscriptionId").is(subscriptionId)),
+          new Update()
+              .set("contentFingerprint", contentFingerprint)
+              .set("jobId", jobId)
+              .set("sentAt", now));
+    }
+    bulk.execute();
+  }
+}
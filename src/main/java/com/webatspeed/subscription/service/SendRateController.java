@@ -0,0 +1,160 @@
+package com.webatspeed.subscription.service;
+
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.sesv2.SesV2Client;
+import software.amazon.awssdk.services.sesv2.model.GetAccountRequest;
+import software.amazon.awssdk.services.sesv2.model.SesV2Exception;
+import software.amazon.awssdk.services.sesv2.model.TooManyRequestsException;
+
+@Slf4j
+@Service
+public class SendRateController {
+
+  private static final String RATE_LIMITER = "ses";
+
+  private static final int MIN_LIMIT = 1;
+
+  private final SesV2Client emailClient;
+
+  private final RateLimiter rateLimiter;
+
+  private final double periodSeconds;
+
+  private int ceiling;
+
+  private int cap = Integer.MAX_VALUE;
+
+  private int limit;
+
+  private int numSentAtLimit = 0;
+
+  private int share = 1;
+
+  private volatile double remainingQuota = Double.NaN;
+
+  public SendRateController(
+      SesV2Client emailClient, RateLimiterRegistry rateLimiterRegistry, MeterRegistry registry) {
+    this.emailClient = emailClient;
+    rateLimiter = rateLimiterRegistry.rateLimiter(RATE_LIMITER);
+
+    var config = rateLimiter.getRateLimiterConfig();
+    periodSeconds = config.getLimitRefreshPeriod().toNanos() / 1e9;
+    ceiling = config.getLimitForPeriod();
+    limit = ceiling;
+
+    Gauge.builder("ses.send.rate", this, SendRateController::getRate)
+        .description("Current SES send rate allowed by the ses rate limiter")
+        .baseUnit("emails/s")
+        .register(registry);
+    Gauge.builder("ses.quota.remaining", this, c -> c.remainingQuota)
+        .description("Remaining SES 24 hour sending quota")
+        .baseUnit("emails")
+        .register(registry);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void seed() {
+    try {
+      var account = emailClient.getAccount(GetAccountRequest.builder().build());
+      if (account == null
+          || account.sendQuota() == null
+          || account.sendQuota().maxSendRate() == null) {
+        log.warn("No SES send quota available, keeping limit of {} per period", limit);
+        remainingQuota = Double.NaN;
+        return;
+      }
+
+      var sendQuota = account.sendQuota();
+      remainingQuota =
+          sendQuota.max24HourSend() != null && sendQuota.sentLast24Hours() != null
+              ? sendQuota.max24HourSend() - sendQuota.sentLast24Hours()
+              : Double.NaN;
+      synchronized (this) {
+        ceiling = Math.max(MIN_LIMIT, (int) Math.floor(sendQuota.maxSendRate() * periodSeconds));
+        changeLimit(shareCeiling());
+      }
+      log.info(
+          "SES send rate seeded to {}/s with {} emails remaining in 24h quota",
+          sendQuota.maxSendRate(),
+          remainingQuota);
+    } catch (SdkException e) {
+      log.warn("SES account could not be read, keeping limit of {} per period", limit, e);
+    }
+  }
+
+  public synchronized void onSent(int numSent) {
+    remainingQuota -= numSent;
+    numSentAtLimit += numSent;
+    if (limit < shareCeiling() && numSentAtLimit >= limit) {
+      changeLimit(limit + 1);
+    }
+  }
+
+  public synchronized void onThrottled() {
+    changeLimit(Math.max(MIN_LIMIT, limit / 2));
+    log.warn("SES throttled, send limit decreased to {} per period", limit);
+  }
+
+  public synchronized void shareWith(int numWorkers) {
+    var newShare = Math.max(1, numWorkers);
+    if (newShare == share) {
+      return;
+    }
+
+    share = newShare;
+    if (limit > shareCeiling()) {
+      changeLimit(shareCeiling());
+    }
+    log.info("SES send rate shared by {} workers, limit is {} per period", share, limit);
+  }
+
+  public synchronized void limitTo(Double maxSendRate) {
+    var newCap =
+        maxSendRate == null
+            ? Integer.MAX_VALUE
+            : Math.max(MIN_LIMIT, (int) Math.floor(maxSendRate * periodSeconds));
+    if (newCap == cap) {
+      return;
+    }
+
+    cap = newCap;
+    changeLimit(shareCeiling());
+    log.info("SES send rate capped at {}/s, limit is {} per period", maxSendRate, limit);
+  }
+
+  public void onError(SesV2Exception e) {
+    if (e instanceof TooManyRequestsException || e.isThrottlingException()) {
+      onThrottled();
+    }
+  }
+
+  public boolean isQuotaExhausted() {
+    return remainingQuota <= 0;
+  }
+
+  public synchronized int getLimit() {
+    return limit;
+  }
+
+  public synchronized double getRate() {
+    return limit / periodSeconds;
+  }
+
+  private int shareCeiling() {
+    return Math.max(MIN_LIMIT, Math.min(ceiling, cap) / share);
+  }
+
+  private void changeLimit(int newLimit) {
+    limit = newLimit;
+    numSentAtLimit = 0;
+    rateLimiter.changeLimitForPeriod(newLimit);
+  }
+}
@@ -1,94 +1,626 @@
 package com.webatspeed.subscription.service;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import com.webatspeed.subscription.DistributionJobRepository;
 import com.webatspeed.subscription.SubscriptionRepository;
+import com.webatspeed.subscription.config.MailConfiguration;
 import com.webatspeed.subscription.exception.FalseTokenException;
+import com.webatspeed.subscription.exception.TransientSendException;
+import com.webatspeed.subscription.exception.UserAlreadyExistsException;
+import com.webatspeed.subscription.exception.UserUnknownOrLockedException;
+import com.webatspeed.subscription.model.DeadLetter;
+import com.webatspeed.subscription.model.DistributionJob;
+import com.webatspeed.subscription.model.DistributionRange;
+import com.webatspeed.subscription.model.DistributionStatus;
+import com.webatspeed.subscription.model.RangeStatus;
+import com.webatspeed.subscription.model.Recipient;
 import com.webatspeed.subscription.model.Subscription;
-import io.github.resilience4j.springboot3.ratelimiter.autoconfigure.RateLimiterProperties;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.sesv2.model.BulkEmailEntryResult;
+import software.amazon.awssdk.services.sesv2.model.BulkEmailStatus;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class Subscriber {
 
+  private static final List<DistributionStatus> RUNNING = List.of(DistributionStatus.RUNNING);
+
+  private static final List<DistributionStatus> UNFINISHED =
+      List.of(DistributionStatus.RUNNING, DistributionStatus.FAILED);
+
+  private static final List<DistributionStatus> ACTIVE =
+      List.of(DistributionStatus.RUNNING, DistributionStatus.PAUSED);
+
   private final SubscriptionRepository repository;
 
+  private final DistributionJobRepository jobRepository;
+
   private final Mailer mailer;
 
-  private final RateLimiterProperties rateLimiterProperties;
+  private final OutboxDispatcher outboxDispatcher;
+
+  private final AttachmentCache attachmentCache;
+
+  private final TemplateCache templateCache;
+
+  private final SendRateController rateController;
+
+  private final MailConfiguration mailConfiguration;
+
+  private final DistributionExecutor distributionExecutor;
+
+  private final DistributionWindow distributionWindow;
+
+  private final DistributionLease lease;
+
+  private final DistributionRanges ranges;
+
+  private final SubscriptionMetrics metrics;
+
+  private final DistributionRetries retries;
+
+  private final DeadLetters deadLetters;
+
+  private final ContentFingerprint contentFingerprint;
+
+  private final SendLedger ledger;
+
+  private final MongoTemplate mongoTemplate;
 
   private final Semaphore distributionLock = new Semaphore(1);
 
+  private volatile boolean isStopping = false;
+
   public void initiateToken(Subscription subscription) {
-    mailer.emailPleaseConfirm(subscription.getEmail(), subscription.getUserConfirmationToken());
+    subscription.enqueue(TemplateName.PLEASE_CONFIRM);
+    try {
+      repository.insert(subscription);
+    } catch (DuplicateKeyException e) {
+      throw new UserAlreadyExistsException();
+    }
+    outboxDispatcher.wake();
   }
 
-  public Subscription applyUpdateToken(Subscription subscription, String token) {
-    var email = subscription.getEmail();
-
-    if (subscription.getConfirmedByUser()
-        && token.equals(subscription.getOwnerConfirmationToken())) {
-      subscription.setConfirmedByOwner(true);
-      mailer.emailCv(email, subscription.getUserUnsubscribeToken(), true);
-    } else if (token.equals(subscription.getUserConfirmationToken())) {
-      subscription.setConfirmedByUser(true);
-      mailer.emailPleaseWait(email);
-      mailer.emailPleaseApprove(email, subscription.getOwnerConfirmationToken());
-    } else {
-      subscription.incNumTokenErrors();
-      repository.save(subscription);
+  public void applyUpdateToken(String email, String token) {
+    var maxErrors = mailConfiguration.getMaxErrors();
+    var subscription =
+        repository
+            .findAndApplyUpdateToken(email, token, maxErrors)
+            .orElseThrow(UserUnknownOrLockedException::new);
+    if (subscription.getNumTokenErrors() > 0) {
+      metrics.onTokenFailure("update", subscription.getNumTokenErrors() >= maxErrors);
       throw new FalseTokenException();
     }
 
-    subscription.resetNumTokenErrors();
-    repository.save(subscription);
-
-    return subscription;
+    outboxDispatcher.wake();
   }
 
-  public Subscription applyDeleteToken(Subscription subscription, String token) {
-    if (token.equals(subscription.getUserUnsubscribeToken())) {
-      repository.delete(subscription);
-    } else {
-      subscription.incNumTokenErrors();
-      repository.save(subscription);
-      throw new FalseTokenException();
+  public void applyDeleteToken(String email, String token) {
+    var maxErrors = mailConfiguration.getMaxErrors();
+    if (repository.deleteByUnsubscribeToken(email, token, maxErrors)) {
+      return;
     }
 
-    return subscription;
+    var counted = repository.incNumTokenErrors(email, maxErrors);
+    if (counted.isPresent()) {
+      metrics.onTokenFailure("delete", counted.get().getNumTokenErrors() >= maxErrors);
+      throw new FalseTokenException();
+    }
+    if (repository.existsByEmail(email)) {
+      throw new UserUnknownOrLockedException();
+    }
   }
 
   @Async
   public void distribute() {
-    var pageIndex = 0;
-    var pageSize = rateLimiterProperties.getInstances().get("ses").getLimitForPeriod();
-    Page<Subscription> subscriptionPage;
+    if (!distributionLock.tryAcquire()) {
+      log.info("Distribution already running in this instance");
+      return;
+    }
 
     try {
-      distributionLock.acquire();
-      do {
-        @SuppressWarnings("ConstantConditions")
-        var pageRequest = PageRequest.of(pageIndex, pageSize);
-        subscriptionPage = repository.findAllByConfirmedByOwnerIsTrue(pageRequest);
-        subscriptionPage
-            .getContent()
-            .forEach(s -> mailer.emailCv(s.getEmail(), s.getUserUnsubscribeToken(), false));
-        pageIndex++;
-      } while (subscriptionPage.hasNext());
-    } catch (InterruptedException e) {
-      log.error("Distribution interrupted", e);
+      distributionJob().ifPresent(this::distribute);
+    } finally {
+      distributionLock.release();
+    }
+  }
+
+  @Async
+  public void replayDeadLetters() {
+    if (!distributionLock.tryAcquire()) {
+      log.info("Distribution running in this instance, dead letters not replayed");
+      return;
+    }
+
+    try {
+      replayUnderLease();
     } finally {
       distributionLock.release();
     }
   }
 
+  @EventListener(ContextClosedEvent.class)
+  public void stopDistributing() {
+    isStopping = true;
+  }
+
+  private void replayUnderLease() {
+    if (!lease.tryAcquire()) {
+      log.info("Distribution lease held by another instance, dead letters not replayed");
+      return;
+    }
+
+    try {
+      if (jobRepository.existsByStatusIn(ACTIVE)) {
+        log.info("Distribution active, dead letters not replayed");
+        return;
+      }
+      replay();
+    } finally {
+      lease.release();
+    }
+  }
+
+  private void replay() {
+    var batchSize = batchSize();
+    String fingerprint = null;
+    String lastSubscriptionId = null;
+    List<DeadLetter> page;
+
+    do {
+      page = deadLetters.findAfter(lastSubscriptionId, batchSize);
+      if (page.isEmpty()) {
+        return;
+      }
+      lastSubscriptionId = page.get(page.size() - 1).getSubscriptionId();
+
+      var jobIds = new HashMap<String, String>();
+      page.forEach(d -> jobIds.put(d.getSubscriptionId(), d.getJobId()));
+      var recipients = repository.findRecipientsIn(jobIds.keySet());
+      var unsubscribed = new HashSet<>(jobIds.keySet());
+      recipients.forEach(r -> unsubscribed.remove(r.id()));
+      unsubscribed.forEach(deadLetters::remove);
+
+      if (fingerprint == null && !recipients.isEmpty()) {
+        refreshCaches();
+        fingerprint = contentFingerprint.current();
+      }
+      var unsent = unsentOf(fingerprint, recipients);
+      var delivered = new HashSet<>(recipients);
+      unsent.forEach(delivered::remove);
+      deadLetters.removeAll(delivered.stream().map(Recipient::id).toList());
+
+      var sentIds = new ArrayList<String>();
+      emailCv(
+          unsent,
+          r -> sentIds.add(r.id()),
+          (r, reason) -> deadLetters.add(jobIds.get(r.id()), r, reason));
+      deadLetters.removeAll(sentIds);
+      record(fingerprint, null, sentIds);
+    } while (page.size() == batchSize && !isStopping && lease.isHeld());
+
+    log.info("Dead letters replayed up to {}", lastSubscriptionId);
+  }
+
+  private Optional<DistributionJob> distributionJob() {
+    if (!lease.tryAcquire()) {
+      return jobRepository.findFirstByStatusInOrderByCreatedAtAsc(RUNNING);
+    }
+
+    try {
+      var job =
+          jobRepository
+              .findFirstByStatusInOrderByCreatedAtAsc(UNFINISHED)
+              .orElseGet(this::newDistributionJob);
+      if (job.getStatus() == DistributionStatus.COMPLETED) {
+        return Optional.empty();
+      }
+      if (job.getStatus() == DistributionStatus.FAILED) {
+        ranges.retryFailed(job.getId());
+        job.setStatus(DistributionStatus.RUNNING);
+        job.setResumedAt(Instant.now());
+        job.setNumAttemptedAtResume(job.getNumSent() + job.getNumFailed());
+        job = jobRepository.save(job);
+      }
+      if (ranges.rangesOf(job.getId()).isEmpty()) {
+        ranges.plan(job);
+      }
+
+      return Optional.of(job);
+    } finally {
+      lease.release();
+    }
+  }
+
+  private DistributionJob newDistributionJob() {
+    var job = new DistributionJob();
+    rateController.seed();
+    job.setBatchSize(batchSize());
+    job.setNumRecipients(repository.countByConfirmedByOwnerIsTrue());
+    job.setResumedAt(Instant.now());
+    if (job.getNumRecipients() > 0) {
+      refreshCaches();
+      job.setContentFingerprint(contentFingerprint.current());
+      if (ledger.isDelivered(job.getContentFingerprint())) {
+        job.setStatus(DistributionStatus.COMPLETED);
+        job.setNumSkipped(job.getNumRecipients());
+        log.info("Content {} already delivered to all subscribers", job.getContentFingerprint());
+      }
+    }
+
+    return jobRepository.save(job);
+  }
+
+  private void distribute(DistributionJob job) {
+    var areCachesRefreshed = new AtomicBoolean(false);
+    Optional<DistributionRange> range;
+    var numRecipients = job.getNumRecipients();
+    reportProgress(job.getId(), numRecipients);
+
+    try {
+      while (!isStopping
+          && isRunning(job.getId())
+          && (range = ranges.claim(job.getId())).isPresent()) {
+        rateController.shareWith(ranges.numActiveWorkers(job.getId()));
+        distribute(job, range.get(), areCachesRefreshed, numRecipients);
+      }
+    } finally {
+      finish(job.getId());
+      reportProgress(job.getId(), numRecipients);
+      rateController.limitTo(null);
+    }
+  }
+
+  private void distribute(
+      DistributionJob job,
+      DistributionRange range,
+      AtomicBoolean areCachesRefreshed,
+      long numRecipients) {
+    var isBulk = isBulk();
+    List<Recipient> recipients;
+
+    try {
+      do {
+        var lastSubscriptionId = range.getLastSubscriptionId();
+        recipients =
+            metrics.timeRecipientPage(
+                () ->
+                    repository.findRecipientsAfter(
+                        lastSubscriptionId, range.getUpToId(), job.getBatchSize()));
+        var unsent = unsentOf(job.getContentFingerprint(), recipients);
+        range.incNumSkipped(recipients.size() - unsent.size());
+        if (!isBulk && !unsent.isEmpty() && !areCachesRefreshed.getAndSet(true)) {
+          refreshCaches();
+        }
+        var sentIds = new ArrayList<String>();
+        emailCv(
+            unsent,
+            r -> {
+              range.incNumSent(1);
+              sentIds.add(r.id());
+            },
+            (r, reason) -> {
+              range.incNumFailed(1);
+              deadLetters.add(job.getId(), r, reason);
+            });
+        record(job.getContentFingerprint(), job.getId(), sentIds);
+        deadLetters.removeAll(sentIds);
+        if (!recipients.isEmpty()) {
+          range.setLastSubscriptionId(recipients.get(recipients.size() - 1).id());
+          if (!ranges.checkpoint(range)) {
+            log.warn("Claim on range {} lost, stopping", range.getId());
+            return;
+          }
+          reportProgress(job.getId(), numRecipients);
+        }
+      } while (hasMore(recipients, job) && !isStopping && isRunning(job.getId()));
+    } catch (RuntimeException e) {
+      ranges.fail(range);
+      throw e;
+    }
+
+    if (hasMore(recipients, job)) {
+      ranges.release(range);
+      log.info("Distribution {} stopped after {}", job.getId(), range.getLastSubscriptionId());
+    } else {
+      ranges.complete(range);
+    }
+  }
+
+  private void finish(String jobId) {
+    if (!ranges.isFinished(jobId)) {
+      return;
+    }
+
+    var jobRanges = ranges.rangesOf(jobId);
+    if (jobRanges.isEmpty()) {
+      return;
+    }
+
+    var isFailed = jobRanges.stream().anyMatch(r -> r.getStatus() == RangeStatus.FAILED);
+    var update =
+        updateOf(isFailed ? DistributionStatus.FAILED : DistributionStatus.COMPLETED)
+            .set("numSent", jobRanges.stream().mapToLong(DistributionRange::getNumSent).sum())
+            .set("numFailed", jobRanges.stream().mapToLong(DistributionRange::getNumFailed).sum())
+            .set(
+                "numSkipped",
+                jobRanges.stream().mapToLong(DistributionRange::getNumSkipped).sum());
+    if (!changeRunning(jobId, update)) {
+      log.debug("Distribution {} already finished, paused or cancelled", jobId);
+    }
+  }
+
+  private boolean isRunning(String jobId) {
+    var job =
+        jobRepository.findById(jobId).filter(j -> j.getStatus() == DistributionStatus.RUNNING);
+    job.ifPresent(j -> rateController.limitTo(j.getMaxSendRate()));
+    if (job.isPresent() && rateController.isQuotaExhausted()) {
+      rateController.seed();
+      if (rateController.isQuotaExhausted()) {
+        pauseOnExhaustedQuota(jobId);
+        return false;
+      }
+    }
+
+    return job.isPresent();
+  }
+
+  private void pauseOnExhaustedQuota(String jobId) {
+    if (changeRunning(jobId, updateOf(DistributionStatus.PAUSED))) {
+      log.warn("SES 24 hour quota exhausted, distribution {} paused", jobId);
+    }
+  }
+
+  private boolean changeRunning(String jobId, Update update) {
+    var query = query(where("id").is(jobId).and("status").is(DistributionStatus.RUNNING));
+
+    return mongoTemplate.updateFirst(query, update, DistributionJob.class).getModifiedCount() > 0;
+  }
+
+  private static Update updateOf(DistributionStatus status) {
+    return new Update().set("status", status).set("modifiedAt", Instant.now()).inc("version", 1);
+  }
+
+  private void reportProgress(String jobId, long numRecipients) {
+    var jobRanges = ranges.rangesOf(jobId);
+    metrics.onProgress(
+        jobRanges.stream().mapToLong(DistributionRange::getNumSent).sum(),
+        jobRanges.stream().mapToLong(DistributionRange::getNumFailed).sum(),
+        jobRanges.stream().mapToLong(DistributionRange::getNumSkipped).sum(),
+        numRecipients);
+  }
+
+  private List<Recipient> unsentOf(String contentFingerprint, List<Recipient> recipients) {
+    if (contentFingerprint == null || recipients.isEmpty()) {
+      return recipients;
+    }
+
+    var ids = recipients.stream().map(Recipient::id).toList();
+    var delivered = ledger.deliveredOf(contentFingerprint, ids);
+
+    return recipients.stream().filter(r -> !delivered.contains(r.id())).toList();
+  }
+
+  private void record(String contentFingerprint, String jobId, List<String> sentIds) {
+    if (contentFingerprint != null) {
+      ledger.record(contentFingerprint, jobId, sentIds);
+    }
+  }
+
+  private static boolean hasMore(List<Recipient> recipients, DistributionJob job) {
+    return recipients.size() == job.getBatchSize();
+  }
+
+  private void emailCv(
+      List<Recipient> recipients,
+      Consumer<Recipient> onSent,
+      BiConsumer<Recipient, String> onFailed) {
+    if (isBulk()) {
+      emailCvInBulk(recipients, onSent, onFailed);
+    } else {
+      emailCvInParallel(recipients, onSent, onFailed);
+    }
+  }
+
+  private void emailCvInParallel(
+      List<Recipient> recipients,
+      Consumer<Recipient> onSent,
+      BiConsumer<Recipient, String> onFailed) {
+    var sends =
+        recipients.stream()
+            .map(
+                r ->
+                    metrics.timeSend(
+                        1,
+                        () ->
+                            retries.submit(
+                                () ->
+                                    send(
+                                        () -> {
+                                          mailer.emailCv(
+                                              r.email(), r.userUnsubscribeToken(), false);
+                                          return r;
+                                        },
+                                        () ->
+                                            mailer
+                                                .emailCvAsync(r.email(), r.userUnsubscribeToken())
+                                                .thenApply(sent -> r)))))
+            .toList();
+
+    for (int i = 0; i < sends.size(); i++) {
+      var recipient = recipients.get(i);
+      try {
+        sends.get(i).join();
+        onSent.accept(recipient);
+      } catch (CompletionException e) {
+        onFailed.accept(recipient, reasonOf(e));
+      }
+    }
+  }
+
+  private void emailCvInBulk(
+      List<Recipient> recipients,
+      Consumer<Recipient> onSent,
+      BiConsumer<Recipient, String> onFailed) {
+    var chunks = new ArrayList<BulkChunk>();
+    var sends = new ArrayList<CompletableFuture<Void>>();
+    for (int i = 0; i < recipients.size(); i += Mailer.MAX_BULK_DESTINATIONS) {
+      var end = Math.min(i + Mailer.MAX_BULK_DESTINATIONS, recipients.size());
+      var chunk = new BulkChunk(recipients.subList(i, end));
+
+      chunks.add(chunk);
+      sends.add(
+          metrics.timeSend(
+              chunk.pending.size(),
+              () ->
+                  retries.submit(
+                      () ->
+                          send(
+                              () -> mailer.emailCvInBulk(chunk.tokensByRecipient()),
+                              () -> mailer.emailCvInBulkAsync(chunk.tokensByRecipient()))
+                              .thenAccept(chunk::settle))));
+    }
+
+    for (int i = 0; i < sends.size(); i++) {
+      var chunk = chunks.get(i);
+      String reason = null;
+      try {
+        sends.get(i).join();
+      } catch (CompletionException e) {
+        reason = reasonOf(e);
+      }
+
+      chunk.sent.forEach(onSent);
+      chunk.failed.forEach(onFailed);
+      for (var recipient : chunk.pending.values()) {
+        onFailed.accept(recipient, reason);
+      }
+    }
+  }
+
+  private <T> CompletableFuture<T> send(
+      Supplier<T> blockingSend, Supplier<CompletableFuture<T>> asyncSend) {
+    if (mailConfiguration.getDistributionSender() == DistributionSender.ASYNC) {
+      return distributionWindow.submit(asyncSend);
+    }
+
+    return distributionExecutor.submit(blockingSend);
+  }
+
+  private void refreshCaches() {
+    if (!isBulk()) {
+      attachmentCache.refresh();
+    }
+    templateCache.refresh(TemplateName.UPDATED_CV);
+  }
+
+  private int batchSize() {
+    var limit = rateController.getLimit();
+
+    return isBulk() ? Math.max(limit, Mailer.MAX_BULK_DESTINATIONS) : limit;
+  }
+
+  private boolean isBulk() {
+    return mailConfiguration.getDistributionMode() == DistributionMode.BULK;
+  }
+
+  private static String reasonOf(CompletionException e) {
+    var cause = e.getCause() == null ? e : e.getCause();
+
+    return NestedExceptionUtils.getMostSpecificCause(cause).toString();
+  }
+
   public boolean isDistributing() {
+    return isWorking() || jobRepository.existsByStatusIn(ACTIVE);
+  }
+
+  public boolean isWorking() {
     return distributionLock.availablePermits() == 0;
   }
+
+  private static final class BulkChunk {
+
+    private static final Set<BulkEmailStatus> TRANSIENT_STATUSES =
+        EnumSet.of(
+            BulkEmailStatus.ACCOUNT_THROTTLED,
+            BulkEmailStatus.ACCOUNT_SENDING_PAUSED,
+            BulkEmailStatus.CONFIGURATION_SET_SENDING_PAUSED,
+            BulkEmailStatus.TRANSIENT_FAILURE);
+
+    private final Map<String, Recipient> pending = new LinkedHashMap<>();
+
+    private final List<Recipient> sent = new ArrayList<>();
+
+    private final Map<Recipient, String> failed = new LinkedHashMap<>();
+
+    private BulkChunk(List<Recipient> recipients) {
+      recipients.forEach(r -> pending.put(r.email(), r));
+    }
+
+    private Map<String, String> tokensByRecipient() {
+      var tokensByRecipient = new LinkedHashMap<String, String>();
+      pending.values().forEach(r -> tokensByRecipient.put(r.email(), r.userUnsubscribeToken()));
+
+      return tokensByRecipient;
+    }
+
+    private void settle(Map<String, BulkEmailEntryResult> results) {
+      String transientReason = null;
+      for (var iterator = pending.values().iterator(); iterator.hasNext(); ) {
+        var recipient = iterator.next();
+        var result = results.get(recipient.email());
+        var reason = result == null ? "No bulk result" : result.status() + " " + result.error();
+        if (result != null && result.status() == BulkEmailStatus.SUCCESS) {
+          sent.add(recipient);
+        } else if (result != null && isTransient(result)) {
+          transientReason = reason;
+          continue;
+        } else {
+          failed.put(recipient, reason);
+        }
+        iterator.remove();
+      }
+
+      if (transientReason != null) {
+        throw new TransientSendException(transientReason);
+      }
+    }
+
+    private static boolean isTransient(BulkEmailEntryResult result) {
+      return TRANSIENT_STATUSES.contains(result.status())
+          || (result.status() == BulkEmailStatus.FAILED
+              && result.error() != null
+              && result.error().toLowerCase(Locale.ROOT).contains("throttl"));
+    }
+  }
 }
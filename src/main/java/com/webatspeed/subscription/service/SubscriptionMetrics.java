@@ -0,0 +1,102 @@
+package com.webatspeed.subscription.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SubscriptionMetrics {
+
+  private final MeterRegistry registry;
+
+  private final Timer rateLimiterWait;
+
+  private final Timer recipientPage;
+
+  private final Timer recipientSend;
+
+  private final AtomicLong numSent = new AtomicLong();
+
+  private final AtomicLong numFailed = new AtomicLong();
+
+  private final AtomicLong numSkipped = new AtomicLong();
+
+  private final AtomicLong numRemaining = new AtomicLong();
+
+  public SubscriptionMetrics(MeterRegistry registry) {
+    this.registry = registry;
+    rateLimiterWait =
+        Timer.builder("ses.rate.limiter.wait")
+            .description("Time spent waiting for ses rate limiter permits")
+            .publishPercentileHistogram()
+            .register(registry);
+    recipientPage =
+        Timer.builder("distribution.recipient.page")
+            .description("Time to read one page of recipients from Mongo")
+            .publishPercentileHistogram()
+            .register(registry);
+    recipientSend =
+        Timer.builder("distribution.send")
+            .description("Time from submitting a recipient's email to its final outcome")
+            .publishPercentiles(0.5, 0.99)
+            .publishPercentileHistogram()
+            .register(registry);
+
+    gauge("sent", numSent);
+    gauge("failed", numFailed);
+    gauge("skipped", numSkipped);
+    gauge("remaining", numRemaining);
+  }
+
+  public void recordRateLimiterWait(long nanos) {
+    rateLimiterWait.record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  public <T> T timeRecipientPage(Supplier<T> page) {
+    return recipientPage.record(page);
+  }
+
+  public <T> CompletableFuture<T> timeSend(
+      int numRecipients, Supplier<CompletableFuture<T>> send) {
+    var start = System.nanoTime();
+
+    return send.get()
+        .whenComplete(
+            (sent, failure) -> {
+              var nanos = System.nanoTime() - start;
+              for (int i = 0; i < numRecipients; i++) {
+                recipientSend.record(nanos, TimeUnit.NANOSECONDS);
+              }
+            });
+  }
+
+  public void onProgress(long sent, long failed, long skipped, long numRecipients) {
+    numSent.set(sent);
+    numFailed.set(failed);
+    numSkipped.set(skipped);
+    numRemaining.set(Math.max(0, numRecipients - sent - failed - skipped));
+  }
+
+  public void onTokenFailure(String operation, boolean isLockout) {
+    registry.counter("subscription.token.failures", "operation", operation).increment();
+    if (isLockout) {
+      registry.counter("subscription.token.lockouts", "operation", operation).increment();
+    }
+  }
+
+  public void onAttachmentLookup(boolean isHit) {
+    registry.counter("attachment.cache.requests", "result", isHit ? "hit" : "miss").increment();
+  }
+
+  private void gauge(String state, AtomicLong value) {
+    Gauge.builder("distribution.recipients", value, AtomicLong::get)
+        .description("Recipients of the current distribution by state")
+        .tag("state", state)
+        .register(registry);
+  }
+}
@@ -0,0 +1,61 @@
+package com.webatspeed.subscription.service;
+
+import com.webatspeed.subscription.SubscriptionMapper;
+import com.webatspeed.subscription.config.MailConfiguration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.sesv2.SesV2Client;
+import software.amazon.awssdk.services.sesv2.model.EmailTemplateContent;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TemplateCache {
+
+  private final SesV2Client emailClient;
+
+  private final MailConfiguration mailConfiguration;
+
+  private final SubscriptionMapper mapper;
+
+  private final Map<TemplateName, CachedTemplate> templates = new ConcurrentHashMap<>();
+
+  public EmailTemplateContent contentOf(TemplateName templateName) {
+    var cached = templates.get(templateName);
+    if (cached == null || isExpired(cached)) {
+      cached = load(templateName);
+    }
+
+    return cached.content();
+  }
+
+  public void refresh(TemplateName... templateNames) {
+    for (var templateName : templateNames) {
+      load(templateName);
+    }
+  }
+
+  public void invalidate() {
+    templates.clear();
+    log.info("Template cache invalidated");
+  }
+
+  private CachedTemplate load(TemplateName templateName) {
+    var templateRequest = mapper.templateRequestOf(templateName);
+    var content = emailClient.getEmailTemplate(templateRequest).templateContent();
+    var cached = new CachedTemplate(content, Instant.now());
+    templates.put(templateName, cached);
+
+    return cached;
+  }
+
+  private boolean isExpired(CachedTemplate cached) {
+    return !cached.loadedAt().plus(mailConfiguration.getTemplateTtl()).isAfter(Instant.now());
+  }
+
+  private record CachedTemplate(EmailTemplateContent content, Instant loadedAt) {}
+}
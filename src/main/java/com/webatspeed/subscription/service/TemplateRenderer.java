@@ -0,0 +1,76 @@
+package com.webatspeed.subscription.service;
+
+import com.webatspeed.subscription.config.MailConfiguration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.sesv2.model.EmailTemplateContent;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TemplateRenderer {
+
+  private static final CompiledTemplate NONE = CompiledTemplate.compile("").orElseThrow();
+
+  private final TemplateCache templateCache;
+
+  private final MailConfiguration mailConfiguration;
+
+  private final Map<TemplateName, CompiledContent> compiledContents = new ConcurrentHashMap<>();
+
+  public Optional<RenderedTemplate> render(
+      TemplateName templateName, String username, String token) {
+    if (mailConfiguration.getTemplateRendering() != TemplateRendering.LOCAL) {
+      return Optional.empty();
+    }
+
+    var content = templateCache.contentOf(templateName);
+    var compiled = compiledContents.get(templateName);
+    if (compiled == null || compiled.source() != content) {
+      compiled = compile(templateName, content);
+      compiledContents.put(templateName, compiled);
+    }
+
+    if (!compiled.isSupported()) {
+      return Optional.empty();
+    }
+
+    return Optional.of(
+        new RenderedTemplate(
+            render(compiled.subject(), username, token),
+            render(compiled.text(), username, token),
+            render(compiled.html(), username, token)));
+  }
+
+  private CompiledContent compile(TemplateName templateName, EmailTemplateContent content) {
+    var subject = compile(content.subject());
+    var text = compile(content.text());
+    var html = compile(content.html());
+    var isSupported = subject.isPresent() && text.isPresent() && html.isPresent();
+    if (!isSupported) {
+      log.warn("Template {} uses unsupported syntax, rendering it with SES", templateName);
+    }
+
+    return new CompiledContent(
+        content, subject.orElse(null), text.orElse(null), html.orElse(null), isSupported);
+  }
+
+  private static Optional<CompiledTemplate> compile(String source) {
+    return source == null ? Optional.of(NONE) : CompiledTemplate.compile(source);
+  }
+
+  private static String render(CompiledTemplate template, String username, String token) {
+    return template == NONE ? null : template.render(username, token);
+  }
+
+  private record CompiledContent(
+      EmailTemplateContent source,
+      CompiledTemplate subject,
+      CompiledTemplate text,
+      CompiledTemplate html,
+      boolean isSupported) {}
+}
@@ -3,8 +3,17 @@ package com.webatspeed.subscription;
 import static org.junit.jupiter.api.Assertions.*;
 
 import com.webatspeed.subscription.config.MongoConfiguration;
+import com.webatspeed.subscription.model.OutboxEmail;
+import com.webatspeed.subscription.model.Recipient;
 import com.webatspeed.subscription.model.Subscription;
+import com.webatspeed.subscription.service.TemplateName;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import net.datafaker.Faker;
 import org.instancio.Instancio;
 import org.instancio.Select;
@@ -99,6 +108,184 @@ public class SubscriptionRepositoryTests {
     assertEquals(subscription.getEmail(), foundSubscription.getEmail());
   }
 
+  @Test
+  void findRecipientsAfterShouldPageConfirmedSubscriptionsByKeyset() {
+    var confirmedIds = new ArrayList<String>();
+    for (int i = 0; i < 3; i++) {
+      givenAValidEmail();
+      givenAValidSubscriptionWith(email);
+      subscription.setConfirmedByOwner(true);
+      givenTheSubscriptionSaved();
+      confirmedIds.add(subscription.getId());
+    }
+    givenAValidEmail();
+    givenAValidSubscriptionWith(email);
+    givenTheSubscriptionSaved();
+
+    var firstBatch = subscriptionRepository.findRecipientsAfter(null, null, 2);
+    var secondBatch = subscriptionRepository.findRecipientsAfter(firstBatch.get(1).id(), null, 2);
+
+    assertEquals(confirmedIds.subList(0, 2), firstBatch.stream().map(Recipient::id).toList());
+    assertEquals(confirmedIds.subList(2, 3), secondBatch.stream().map(Recipient::id).toList());
+    var recipient = secondBatch.get(0);
+    var saved = subscriptionRepository.findById(recipient.id()).orElseThrow();
+    assertEquals(saved.getEmail(), recipient.email());
+    assertEquals(saved.getUserUnsubscribeToken(), recipient.userUnsubscribeToken());
+    var boundedBatch =
+        subscriptionRepository.findRecipientsAfter(confirmedIds.get(0), confirmedIds.get(1), 2);
+    assertEquals(confirmedIds.subList(1, 2), boundedBatch.stream().map(Recipient::id).toList());
+  }
+
+  @Test
+  void findAndApplyUpdateTokenShouldConfirmUserAndEnqueueEmails() {
+    givenAValidEmail();
+    givenAValidSubscriptionWith(email, UUID.randomUUID().toString());
+    givenTheSubscriptionSaved();
+
+    var updated =
+        subscriptionRepository
+            .findAndApplyUpdateToken(email, subscription.getUserConfirmationToken(), 3)
+            .orElseThrow();
+
+    assertTrue(updated.getConfirmedByUser());
+    assertNull(updated.getConfirmedByOwner());
+    assertEquals(0, updated.getNumTokenErrors());
+    assertEquals(
+        List.of(TemplateName.PLEASE_WAIT, TemplateName.PLEASE_APPROVE),
+        updated.getOutbox().stream().map(OutboxEmail::getTemplateName).toList());
+    assertEquals(1, updated.getVersion());
+  }
+
+  @Test
+  void findAndApplyUpdateTokenShouldConfirmOwnerOnlyAfterUser() {
+    givenAValidEmail();
+    givenAValidSubscriptionWith(email, UUID.randomUUID().toString());
+    subscription.setOwnerConfirmationToken(UUID.randomUUID().toString());
+    subscription.setConfirmedByUser(true);
+    givenTheSubscriptionSaved();
+
+    var updated =
+        subscriptionRepository
+            .findAndApplyUpdateToken(email, subscription.getOwnerConfirmationToken(), 3)
+            .orElseThrow();
+
+    assertTrue(updated.getConfirmedByOwner());
+    assertEquals(TemplateName.FIRST_CV, updated.getOutbox().get(0).getTemplateName());
+  }
+
+  @Test
+  void findAndApplyUpdateTokenShouldCountMismatchesAndTreatTokensLiterally() {
+    givenAValidEmail();
+    givenAValidSubscriptionWith(email, UUID.randomUUID().toString());
+    givenTheSubscriptionSaved();
+
+    var updated =
+        subscriptionRepository
+            .findAndApplyUpdateToken(email, "$userConfirmationToken", 3)
+            .orElseThrow();
+
+    assertNull(updated.getConfirmedByUser());
+    assertEquals(1, updated.getNumTokenErrors());
+    assertTrue(updated.getOutbox().isEmpty());
+  }
+
+  @Test
+  void findAndApplyUpdateTokenShouldNotFindLockedSubscription() {
+    givenAValidEmail();
+    givenAValidSubscriptionWith(email, UUID.randomUUID().toString());
+    subscription.setNumTokenErrors(3);
+    givenTheSubscriptionSaved();
+
+    assertTrue(
+        subscriptionRepository
+            .findAndApplyUpdateToken(email, subscription.getUserConfirmationToken(), 3)
+            .isEmpty());
+  }
+
+  @Test
+  void concurrentUpdateTokensShouldAllBeApplied() throws InterruptedException {
+    givenAValidEmail();
+    givenAValidSubscriptionWith(email, UUID.randomUUID().toString());
+    givenTheSubscriptionSaved();
+    var token = subscription.getUserConfirmationToken();
+
+    var executor = Executors.newFixedThreadPool(4);
+    var updates = new ArrayList<Future<Optional<Subscription>>>();
+    for (int i = 0; i < 8; i++) {
+      updates.add(
+          executor.submit(() -> subscriptionRepository.findAndApplyUpdateToken(email, token, 3)));
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+    for (var update : updates) {
+      assertDoesNotThrow(() -> update.get().orElseThrow());
+    }
+    var saved = subscriptionRepository.findById(subscription.getId()).orElseThrow();
+    assertEquals(16, saved.getOutbox().size());
+    assertEquals(8, saved.getVersion());
+  }
+
+  @Test
+  void insertShouldRejectDuplicateEmail() {
+    givenAValidEmail();
+    givenAValidSubscriptionWith(email);
+    subscriptionRepository.insert(subscription);
+
+    givenAValidSubscriptionWith(email);
+
+    assertThrows(DuplicateKeyException.class, () -> subscriptionRepository.insert(subscription));
+    assertEquals(1, subscriptionRepository.count());
+  }
+
+  @Test
+  void deleteByUnsubscribeTokenShouldDeleteOnlyOnMatchingToken() {
+    givenAValidEmail();
+    givenAValidSubscriptionWith(email);
+    subscription.setUserUnsubscribeToken(UUID.randomUUID().toString());
+    givenTheSubscriptionSaved();
+
+    assertFalse(
+        subscriptionRepository.deleteByUnsubscribeToken(email, UUID.randomUUID().toString(), 3));
+    assertEquals(1, subscriptionRepository.count());
+
+    assertTrue(
+        subscriptionRepository.deleteByUnsubscribeToken(
+            email, subscription.getUserUnsubscribeToken(), 3));
+    assertEquals(0, subscriptionRepository.count());
+  }
+
+  @Test
+  void deleteByUnsubscribeTokenShouldNotDeleteLockedSubscription() {
+    givenAValidEmail();
+    givenAValidSubscriptionWith(email);
+    subscription.setUserUnsubscribeToken(UUID.randomUUID().toString());
+    subscription.setNumTokenErrors(3);
+    givenTheSubscriptionSaved();
+
+    assertFalse(
+        subscriptionRepository.deleteByUnsubscribeToken(
+            email, subscription.getUserUnsubscribeToken(), 3));
+    assertEquals(1, subscriptionRepository.count());
+  }
+
+  @Test
+  void incNumTokenErrorsShouldStopAtMaxErrors() {
+    givenAValidEmail();
+    givenAValidSubscriptionWith(email);
+    givenTheSubscriptionSaved();
+
+    assertEquals(
+        1, subscriptionRepository.incNumTokenErrors(email, 2).orElseThrow().getNumTokenErrors());
+    assertEquals(
+        2, subscriptionRepository.incNumTokenErrors(email, 2).orElseThrow().getNumTokenErrors());
+    assertTrue(subscriptionRepository.incNumTokenErrors(email, 2).isEmpty());
+    assertTrue(subscriptionRepository.incNumTokenErrors("unknown@email.local", 2).isEmpty());
+
+    var saved = subscriptionRepository.findById(subscription.getId()).orElseThrow();
+    assertEquals(2, saved.getNumTokenErrors());
+  }
+
   private void givenAValidEmail() {
     email = FAKER.internet().emailAddress();
   }
@@ -111,6 +298,7 @@ public class SubscriptionRepositoryTests {
     subscription =
         Instancio.of(Subscription.class)
             .set(Select.field("id"), null)
+            .set(Select.field("outbox"), new ArrayList<>())
             .set(Select.field("email"), email)
             .set(Select.field("userConfirmationToken"), userConfirmationToken)
             .set(Select.field("ownerConfirmationToken"), null)
@@ -0,0 +1,32 @@
+package com.webatspeed.subscription;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class TemplateDataWriterTests {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  void writeShouldProduceJsonReadableAsArgs() throws Exception {
+    var writer = TemplateDataWriter.of("token", "username");
+
+    var json = writer.write("t\"o\\k\u0001en", "line\nbreak\t\u00e4");
+
+    assertEquals(
+        Map.of("token", "t\"o\\k\u0001en", "username", "line\nbreak\t\u00e4"),
+        objectMapper.readValue(json, Map.class));
+  }
+
+  @Test
+  void writeShouldMatchObjectMapperForPlainValues() throws Exception {
+    var writer = TemplateDataWriter.of("username");
+
+    assertEquals(
+        objectMapper.writeValueAsString(Map.of("username", "test@email.local")),
+        writer.write("test@email.local"));
+  }
+}
@@ -0,0 +1,76 @@
+package com.webatspeed.subscription.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.services.sesv2.model.EmailContent;
+import software.amazon.awssdk.services.sesv2.model.RawMessage;
+import software.amazon.awssdk.services.sesv2.model.SendEmailRequest;
+
+public class AwsMetricsInterceptorTests {
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private AwsMetricsInterceptor interceptor;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    interceptor = new AwsMetricsInterceptor(meterRegistry);
+  }
+
+  @Test
+  void rawSendShouldBeTaggedWithTemplateAttribute() {
+    var attributes = attributesOf("SendEmail");
+    attributes.putAttribute(AwsMetricsInterceptor.TEMPLATE, "first-cv");
+
+    execute(rawSendRequest(), attributes);
+
+    assertEquals(1, timerOf("first-cv").count());
+  }
+
+  @Test
+  void rawSendWithoutTemplateAttributeShouldBeTaggedRaw() {
+    execute(rawSendRequest(), attributesOf("SendEmail"));
+
+    assertEquals(1, timerOf("raw").count());
+  }
+
+  private void execute(SdkRequest request, ExecutionAttributes attributes) {
+    var context = mock(Context.AfterExecution.class);
+    when(context.request()).thenReturn(request);
+
+    interceptor.beforeExecution(mock(Context.BeforeExecution.class), attributes);
+    interceptor.afterExecution(context, attributes);
+  }
+
+  private Timer timerOf(String template) {
+    return meterRegistry
+        .get("aws.calls")
+        .tag("template", template)
+        .tag("outcome", "success")
+        .timer();
+  }
+
+  private static ExecutionAttributes attributesOf(String operation) {
+    var attributes = new ExecutionAttributes();
+    attributes.putAttribute(SdkExecutionAttribute.SERVICE_NAME, "SESv2");
+    attributes.putAttribute(SdkExecutionAttribute.OPERATION_NAME, operation);
+
+    return attributes;
+  }
+
+  private static SendEmailRequest rawSendRequest() {
+    var content = EmailContent.builder().raw(RawMessage.builder().build()).build();
+
+    return SendEmailRequest.builder().content(content).build();
+  }
+}
@@ -0,0 +1,221 @@
+package com.webatspeed.subscription.controller;
+
+import com.webatspeed.subscription.SubscriptionRepository;
+import com.webatspeed.subscription.dto.SubscriptionDetails;
+import com.webatspeed.subscription.model.Subscription;
+import com.webatspeed.subscription.service.TemplateName;
+import net.datafaker.Faker;
+import org.instancio.Instancio;
+import org.instancio.Select;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.sesv2.SesV2Client;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("reactive")
+@AutoConfigureWebTestClient
+@SpringBootTest
+public class ReactiveSubscriptionControllerTests {
+  private static final Faker FAKER = new Faker();
+
+  @Autowired private WebTestClient webTestClient;
+
+  @Autowired private SubscriptionRepository subscriptionRepository;
+
+  @MockBean
+  private SesV2Client emailClient;
+
+  @MockBean
+  private S3Client storageClient;
+
+  private SubscriptionDetails subscriptionDetails;
+
+  private Subscription subscription;
+
+  @AfterEach
+  void cleanUp() {
+    subscription = null;
+    subscriptionDetails = null;
+    subscriptionRepository.deleteAll();
+  }
+
+  @Test
+  void createSubscriptionShouldRespondWithBadRequestOnNonEmailString() {
+    subscriptionDetails = new SubscriptionDetails(FAKER.lorem().word(), null);
+
+    webTestClient
+        .post()
+        .uri("/v1/subscription")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(subscriptionDetails)
+        .exchange()
+        .expectStatus()
+        .isBadRequest();
+  }
+
+  @Test
+  void createSubscriptionShouldRespondWithConflictOnExistingEmail() {
+    givenSubscriptionDetails(null);
+    givenAnExistingSubscription(subscriptionDetails.email(), null, null);
+
+    webTestClient
+        .post()
+        .uri("/v1/subscription")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(subscriptionDetails)
+        .exchange()
+        .expectStatus()
+        .isEqualTo(409);
+  }
+
+  @Test
+  void createSubscriptionShouldRespondWithCreatedAndQueueConfirmation() {
+    givenSubscriptionDetails(null);
+
+    webTestClient
+        .post()
+        .uri("/v1/subscription")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(subscriptionDetails)
+        .exchange()
+        .expectStatus()
+        .isCreated();
+
+    assertEquals(1, subscriptionRepository.count());
+    var created = subscriptionRepository.findAll().get(0);
+    assertEquals(subscriptionDetails.email(), created.getEmail());
+    assertNotNull(created.getCreatedAt());
+  }
+
+  @Test
+  void updateSubscriptionShouldRespondWithNotFoundOnUnknownEmail() {
+    givenSubscriptionDetails(UUID.randomUUID().toString());
+
+    webTestClient
+        .put()
+        .uri("/v1/subscription")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(subscriptionDetails)
+        .exchange()
+        .expectStatus()
+        .isNotFound();
+  }
+
+  @Test
+  void updateSubscriptionShouldRespondWithBadRequestOnNotMatchingToken() {
+    givenSubscriptionDetails(UUID.randomUUID().toString());
+    givenAnExistingSubscription(
+        subscriptionDetails.email(), UUID.randomUUID().toString(), null);
+
+    webTestClient
+        .put()
+        .uri("/v1/subscription")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(subscriptionDetails)
+        .exchange()
+        .expectStatus()
+        .isBadRequest();
+
+    var updated = subscriptionRepository.findById(subscription.getId()).orElseThrow();
+    assertEquals(1, updated.getNumTokenErrors());
+  }
+
+  @Test
+  void updateSubscriptionShouldRespondWithNoContentOnValidUserToken() {
+    var token = UUID.randomUUID().toString();
+    givenSubscriptionDetails(token);
+    givenAnExistingSubscription(subscriptionDetails.email(), token, null);
+
+    webTestClient
+        .put()
+        .uri("/v1/subscription")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(subscriptionDetails)
+        .exchange()
+        .expectStatus()
+        .isNoContent();
+
+    var updated = subscriptionRepository.findById(subscription.getId()).orElseThrow();
+    assertTrue(updated.getConfirmedByUser());
+    assertEquals(
+        TemplateName.PLEASE_WAIT, updated.getOutbox().get(0).getTemplateName());
+  }
+
+  @Test
+  void deleteSubscriptionShouldRespondWithBadRequestOnNotMatchingToken() {
+    givenSubscriptionDetails(UUID.randomUUID().toString());
+    givenAnExistingSubscription(
+        subscriptionDetails.email(), null, UUID.randomUUID().toString());
+
+    deleteSubscription().expectStatus().isBadRequest();
+
+    assertEquals(1, subscriptionRepository.count());
+  }
+
+  @Test
+  void deleteSubscriptionShouldRespondWithNoContentOnValidUnsubscribeToken() {
+    var token = UUID.randomUUID().toString();
+    givenSubscriptionDetails(token);
+    givenAnExistingSubscription(subscriptionDetails.email(), null, token);
+
+    deleteSubscription().expectStatus().isNoContent();
+
+    assertEquals(0, subscriptionRepository.count());
+  }
+
+  @Test
+  void invalidateTemplatesShouldRespondWithNoContent() {
+    webTestClient
+        .delete()
+        .uri("/v1/subscription/templates")
+        .exchange()
+        .expectStatus()
+        .isNoContent();
+  }
+
+  private WebTestClient.ResponseSpec deleteSubscription() {
+    return webTestClient
+        .method(HttpMethod.DELETE)
+        .uri("/v1/subscription")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(subscriptionDetails)
+        .exchange();
+  }
+
+  private void givenSubscriptionDetails(String token) {
+    subscriptionDetails = new SubscriptionDetails(FAKER.internet().emailAddress(), token);
+  }
+
+  private void givenAnExistingSubscription(
+      String email, String userConfirmationToken, String userUnsubscribeToken) {
+    subscription =
+        Instancio.of(Subscription.class)
+            .set(Select.field("id"), null)
+            .set(Select.field("outbox"), new ArrayList<>())
+            .set(Select.field("email"), email)
+            .set(Select.field("userConfirmationToken"), userConfirmationToken)
+            .set(Select.field("ownerConfirmationToken"), null)
+            .set(Select.field("userUnsubscribeToken"), userUnsubscribeToken)
+            .set(Select.field("numTokenErrors"), null)
+            .set(Select.field("confirmedByUser"), false)
+            .set(Select.field("confirmedByOwner"), null)
+            .set(Select.field("createdAt"), null)
+            .set(Select.field("modifiedAt"), null)
+            .set(Select.field("version"), null)
+            .create();
+    subscriptionRepository.save(subscription);
+  }
+}
@@ -4,12 +4,19 @@ import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import com.webatspeed.subscription.dto.DistributionProgress;
+import com.webatspeed.subscription.exception.DistributionStateException;
+import com.webatspeed.subscription.exception.DistributionUnknownException;
+import com.webatspeed.subscription.model.DistributionStatus;
+import com.webatspeed.subscription.service.DistributionControl;
 import com.webatspeed.subscription.service.Subscriber;
+import java.time.Instant;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 @AutoConfigureMockMvc
@@ -20,6 +27,8 @@ public class SubscriptionControllerDistributionTests {
 
   @MockBean private Subscriber subscriber;
 
+  @MockBean private DistributionControl distributionControl;
+
   @Test
   void applySubscriptionsShouldRespondWithAcceptedIfNotDistributing() throws Exception {
     givenDistributing(false);
@@ -51,6 +60,106 @@ public class SubscriptionControllerDistributionTests {
     verify(subscriber).distribute();
   }
 
+  @Test
+  void replayDeadLettersShouldRespondWithAcceptedIfNotDistributing() throws Exception {
+    givenDistributing(false);
+
+    mockMvc
+        .perform(post("/v1/subscription/distribute/dead-letters"))
+        .andExpect(status().isAccepted());
+
+    verify(subscriber).replayDeadLetters();
+  }
+
+  @Test
+  void replayDeadLettersShouldRespondWithLockedIfDistributing() throws Exception {
+    givenDistributing(true);
+
+    mockMvc
+        .perform(post("/v1/subscription/distribute/dead-letters"))
+        .andExpect(status().isLocked());
+
+    verify(subscriber, never()).replayDeadLetters();
+  }
+
+  @Test
+  void distributionProgressShouldRespondWithProgress() throws Exception {
+    var progress =
+        new DistributionProgress(
+            "job",
+            DistributionStatus.RUNNING,
+            10,
+            4,
+            3,
+            1,
+            0,
+            0,
+            2.0,
+            5.0,
+            Instant.now(),
+            Instant.now());
+    when(distributionControl.progress()).thenReturn(progress);
+
+    mockMvc
+        .perform(get("/v1/subscription/distribute"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.status").value("RUNNING"))
+        .andExpect(jsonPath("$.numProcessed").value(4))
+        .andExpect(jsonPath("$.sendRate").value(2.0));
+  }
+
+  @Test
+  void distributionProgressShouldRespondWithNotFoundWithoutDistribution() throws Exception {
+    when(distributionControl.progress()).thenThrow(new DistributionUnknownException());
+
+    mockMvc.perform(get("/v1/subscription/distribute")).andExpect(status().isNotFound());
+  }
+
+  @Test
+  void pauseDistributionShouldRespondWithNoContent() throws Exception {
+    mockMvc.perform(post("/v1/subscription/distribute/pause")).andExpect(status().isNoContent());
+
+    verify(distributionControl).pause();
+  }
+
+  @Test
+  void resumeDistributionShouldRespondWithConflictIfNotPaused() throws Exception {
+    doThrow(new DistributionStateException()).when(distributionControl).resume();
+
+    mockMvc.perform(post("/v1/subscription/distribute/resume")).andExpect(status().isConflict());
+  }
+
+  @Test
+  void cancelDistributionShouldRespondWithNoContent() throws Exception {
+    mockMvc.perform(delete("/v1/subscription/distribute")).andExpect(status().isNoContent());
+
+    verify(distributionControl).cancel();
+  }
+
+  @Test
+  void limitDistributionRateShouldRespondWithNoContent() throws Exception {
+    mockMvc
+        .perform(
+            put("/v1/subscription/distribute/rate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"maxSendRate\": 5.5}"))
+        .andExpect(status().isNoContent());
+
+    verify(distributionControl).limitSendRate(5.5);
+  }
+
+  @Test
+  void limitDistributionRateShouldRespondWithBadRequestOnNonPositiveRate() throws Exception {
+    mockMvc
+        .perform(
+            put("/v1/subscription/distribute/rate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"maxSendRate\": 0}"))
+        .andExpect(status().isBadRequest());
+
+    verify(distributionControl, never()).limitSendRate(any());
+  }
+
   private void givenDistributing(boolean is) {
     when(subscriber.isDistributing()).thenReturn(is);
   }
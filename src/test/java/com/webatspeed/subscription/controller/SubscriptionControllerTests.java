@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.webatspeed.subscription.SubscriptionRepository;
 import com.webatspeed.subscription.dto.SubscriptionDetails;
 import com.webatspeed.subscription.model.Subscription;
+import com.webatspeed.subscription.service.TemplateName;
 import net.datafaker.Faker;
 import org.instancio.Instancio;
 import org.instancio.Select;
@@ -32,8 +33,11 @@ import software.amazon.awssdk.services.sesv2.model.*;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.UUID;
 
+import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -142,7 +146,7 @@ public class SubscriptionControllerTests {
     var subscriptionSaved = subscriptionsSaved.get(0);
     assertEquals(subscriptionDetails.email(), subscriptionSaved.getEmail());
 
-    verify(emailClient).sendEmail(captor.capture());
+    verify(emailClient, timeout(5000)).sendEmail(captor.capture());
     var request = captor.getValue();
     assertEquals(subscriptionDetails.email(), request.destination().toAddresses().get(0));
     var template = request.content().template();
@@ -152,6 +156,7 @@ public class SubscriptionControllerTests {
     assertEquals("test@email.local", request.fromEmailAddress());
     assertEquals(1, request.replyToAddresses().size());
     assertEquals("test@email.local", request.replyToAddresses().get(0));
+    await().until(() -> subscriptionRepository.findAll().get(0).getOutbox().isEmpty());
   }
 
   @Test
@@ -224,14 +229,15 @@ public class SubscriptionControllerTests {
   }
 
   @Test
-  void updateSubscriptionShouldRespondWithInternalErrorOnAmazonConnectionError() throws Exception {
+  void updateSubscriptionShouldRespondWithNoContentAndRetryLaterOnAmazonConnectionError()
+      throws Exception {
     givenFullSubscriptionDetails();
     givenAnExistingSubscription(
         subscriptionDetails.email(),
         UUID.randomUUID().toString(),
         subscriptionDetails.token(),
         UUID.randomUUID().toString());
-    givenRenderedEmailTemplateError();
+    givenGetEmailTemplateError();
 
     assertEquals(1, subscriptionRepository.count());
     mockMvc
@@ -239,8 +245,18 @@ public class SubscriptionControllerTests {
             put("/v1/subscription")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(subscriptionDetails)))
-        .andExpect(status().isInternalServerError());
+        .andExpect(status().isNoContent());
 
+    await()
+        .until(
+            () ->
+                subscriptionRepository.findAll().get(0).getOutbox().stream()
+                    .anyMatch(e -> e.getNumAttempts() > 0 && !e.isDue(Instant.now())));
+    var savedSubscription = subscriptionRepository.findAll().get(0);
+    assertTrue(savedSubscription.getConfirmedByOwner());
+    assertEquals(1, savedSubscription.getOutbox().size());
+    assertEquals(TemplateName.FIRST_CV, savedSubscription.getOutbox().get(0).getTemplateName());
+    verify(emailClient, never()).sendEmail(any(SendEmailRequest.class));
     verifyNoInteractions(storageClient);
   }
 
@@ -300,7 +316,7 @@ public class SubscriptionControllerTests {
     assertFalse(savedSubscription.getConfirmedByOwner());
     assertEquals(0, savedSubscription.getNumTokenErrors());
 
-    verify(emailClient, times(2)).sendEmail(captor.capture());
+    verify(emailClient, timeout(5000).times(2)).sendEmail(captor.capture());
     var requests = captor.getAllValues();
 
     var firstRequest = requests.get(0);
@@ -355,7 +371,7 @@ public class SubscriptionControllerTests {
     assertTrue(savedSubscription.getConfirmedByOwner());
     assertEquals(0, savedSubscription.getNumTokenErrors());
 
-    verify(emailClient).sendEmail(captor.capture());
+    verify(emailClient, timeout(5000)).sendEmail(captor.capture());
     var request = captor.getValue();
     assertEquals(subscriptionDetails.email(), request.destination().toAddresses().get(0));
     var rawMessage = request.content().raw();
@@ -494,6 +510,13 @@ public class SubscriptionControllerTests {
     verifyNoInteractions(emailClient);
   }
 
+  @Test
+  void invalidateTemplatesShouldRespondWithNoContent() throws Exception {
+    mockMvc.perform(delete("/v1/subscription/templates")).andExpect(status().isNoContent());
+
+    verifyNoInteractions(emailClient);
+  }
+
   @Test
   void methodsShouldResultInCrudFlow() throws Exception {
     givenSubscriptionDetailsWithoutToken();
@@ -592,6 +615,7 @@ public class SubscriptionControllerTests {
     subscription =
         Instancio.of(Subscription.class)
             .set(Select.field("id"), null)
+            .set(Select.field("outbox"), new ArrayList<>())
             .set(Select.field("email"), email)
             .set(Select.field("userConfirmationToken"), userConfirmationToken)
             .set(Select.field("ownerConfirmationToken"), ownerConfirmationToken)
@@ -636,13 +660,18 @@ public class SubscriptionControllerTests {
         .thenReturn(testRenderEmailTemplateResult);
   }
 
-  private void givenRenderedEmailTemplateError() {
-    when(emailClient.testRenderEmailTemplate(any(TestRenderEmailTemplateRequest.class)))
+  private void givenGetEmailTemplateError() {
+    when(emailClient.getEmailTemplate(any(GetEmailTemplateRequest.class)))
             .thenThrow(AwsServiceException.builder().message("error").build());
   }
 
   private void givenGetEmailTemplateResult() {
-    var templateContent = EmailTemplateContent.builder().subject(FAKER.internet().emailSubject()).build();
+    var templateContent =
+        EmailTemplateContent.builder()
+            .subject(FAKER.internet().emailSubject())
+            .text("Content1 {{username}}")
+            .html("<p>Content2 {{token}}</p>")
+            .build();
     var getEmailTemplateResult = GetEmailTemplateResponse.builder().templateContent(templateContent).build();
 
     when(emailClient.getEmailTemplate(any(GetEmailTemplateRequest.class)))
@@ -650,7 +679,10 @@ public class SubscriptionControllerTests {
   }
 
   private void givenListObjectsResponse() {
-    objectsResponse = Instancio.create(ListObjectsV2Response.class);
+    objectsResponse =
+        Instancio.of(ListObjectsV2Response.class)
+            .set(Select.field("isTruncated"), false)
+            .create();
 
     when(storageClient.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(objectsResponse);
   }
@@ -0,0 +1,202 @@
+package com.webatspeed.subscription.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+public class AwsStandIn implements AutoCloseable {
+
+  private static final Pattern DESTINATION = Pattern.compile("\"Destination\"");
+
+  private final HttpServer server;
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(256);
+
+  private final Behavior behavior;
+
+  private final Map<String, byte[]> objects;
+
+  private final AtomicLong numSends = new AtomicLong();
+
+  private final AtomicLong numThrottled = new AtomicLong();
+
+  private final AtomicLong numErrors = new AtomicLong();
+
+  public AwsStandIn(Behavior behavior, Map<String, byte[]> objects) throws IOException {
+    this.behavior = behavior;
+    this.objects = Map.copyOf(objects);
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+    server.createContext("/v2/email/", this::handleSes);
+    server.createContext("/", this::handleS3);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  public URI endpoint() {
+    return URI.create("http://localhost:" + server.getAddress().getPort());
+  }
+
+  public long getNumSends() {
+    return numSends.get();
+  }
+
+  public long getNumThrottled() {
+    return numThrottled.get();
+  }
+
+  public long getNumErrors() {
+    return numErrors.get();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handleSes(HttpExchange exchange) throws IOException {
+    var path = exchange.getRequestURI().getPath();
+    var method = exchange.getRequestMethod();
+    try (exchange) {
+      if ("GET".equals(method) && path.equals("/v2/email/account")) {
+        respondJson(
+            exchange,
+            200,
+            "{\"SendQuota\":{\"Max24HourSend\":1.0E9,\"MaxSendRate\":"
+                + behavior.maxSendRate()
+                + ",\"SentLast24Hours\":0.0}}");
+      } else if ("GET".equals(method) && path.startsWith("/v2/email/templates/")) {
+        var templateName = path.substring("/v2/email/templates/".length());
+        respondJson(
+            exchange,
+            200,
+            "{\"TemplateName\":\""
+                + templateName
+                + "\",\"TemplateContent\":{\"Subject\":\"Updated CV\","
+                + "\"Text\":\"Hello {{username}}, unsubscribe with {{token}}\","
+                + "\"Html\":\"<p>Hello {{username}}</p><p>{{token}}</p>\"}}");
+      } else if ("POST".equals(method) && path.equals("/v2/email/outbound-emails")) {
+        exchange.getRequestBody().readAllBytes();
+        send(exchange, 1);
+      } else if ("POST".equals(method) && path.equals("/v2/email/outbound-bulk-emails")) {
+        var body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        send(exchange, (int) DESTINATION.matcher(body).results().count());
+      } else {
+        respondError(exchange, 404, "NotFoundException");
+      }
+    }
+  }
+
+  private void send(HttpExchange exchange, int numEntries) throws IOException {
+    sleep(behavior.latency());
+
+    var random = ThreadLocalRandom.current().nextDouble();
+    if (random < behavior.throttleRate()) {
+      numThrottled.incrementAndGet();
+      respondError(exchange, 429, "TooManyRequestsException");
+    } else if (random < behavior.throttleRate() + behavior.errorRate()) {
+      numErrors.incrementAndGet();
+      respondError(exchange, 500, "InternalFailure");
+    } else if (numEntries == 1 && exchange.getRequestURI().getPath().endsWith("outbound-emails")) {
+      respondJson(exchange, 200, "{\"MessageId\":\"" + UUID.randomUUID() + "\"}");
+    } else {
+      var results = new StringBuilder("{\"BulkEmailEntryResults\":[");
+      for (int i = 0; i < numEntries; i++) {
+        results.append(i == 0 ? "" : ",").append("{\"Status\":\"SUCCESS\",\"MessageId\":\"");
+        results.append(UUID.randomUUID()).append("\"}");
+      }
+      respondJson(exchange, 200, results.append("]}").toString());
+    }
+
+    numSends.incrementAndGet();
+  }
+
+  private void handleS3(HttpExchange exchange) throws IOException {
+    var path = exchange.getRequestURI().getPath();
+    var query = exchange.getRequestURI().getQuery();
+    try (exchange) {
+      var segments = path.substring(1).split("/", 2);
+      if (segments.length == 1 && query != null && query.contains("list-type=2")) {
+        var xml =
+            new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+                .append("<Name>")
+                .append(segments[0])
+                .append("</Name><KeyCount>")
+                .append(objects.size())
+                .append("</KeyCount><IsTruncated>false</IsTruncated>");
+        objects.forEach(
+            (key, content) ->
+                xml.append("<Contents><Key>")
+                    .append(key)
+                    .append("</Key><ETag>&quot;")
+                    .append(eTagOf(content))
+                    .append("&quot;</ETag><Size>")
+                    .append(content.length)
+                    .append("</Size></Contents>"));
+        respond(exchange, 200, "application/xml", xml.append("</ListBucketResult>").toString());
+      } else if (segments.length == 2 && objects.containsKey(segments[1])) {
+        var content = objects.get(segments[1]);
+        var eTag = "\"" + eTagOf(content) + "\"";
+        exchange.getResponseHeaders().add("ETag", eTag);
+        if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+          exchange.sendResponseHeaders(304, -1);
+          return;
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/pdf");
+        exchange.sendResponseHeaders(200, content.length);
+        exchange.getResponseBody().write(content);
+      } else {
+        respond(exchange, 404, "application/xml", "<Error><Code>NoSuchKey</Code></Error>");
+      }
+    }
+  }
+
+  private static String eTagOf(byte[] content) {
+    return Integer.toHexString(Arrays.hashCode(content));
+  }
+
+  private static void respondError(HttpExchange exchange, int status, String errorType)
+      throws IOException {
+    exchange.getResponseHeaders().add("x-amzn-ErrorType", errorType);
+    respondJson(exchange, status, "{\"message\":\"" + errorType + " injected by stand-in\"}");
+  }
+
+  private static void respondJson(HttpExchange exchange, int status, String body)
+      throws IOException {
+    respond(exchange, status, "application/json", body);
+  }
+
+  private static void respond(HttpExchange exchange, int status, String contentType, String body)
+      throws IOException {
+    var bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", contentType);
+    exchange.sendResponseHeaders(status, bytes.length);
+    exchange.getResponseBody().write(bytes);
+  }
+
+  private static void sleep(Duration duration) {
+    if (duration.isZero()) {
+      return;
+    }
+    try {
+      Thread.sleep(duration.toMillis(), duration.toNanosPart() % 1_000_000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public record Behavior(
+      Duration latency, double throttleRate, double errorRate, int maxSendRate) {}
+}
@@ -0,0 +1,194 @@
+package com.webatspeed.subscription.load;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.webatspeed.subscription.DistributionJobRepository;
+import com.webatspeed.subscription.SubscriptionRepository;
+import com.webatspeed.subscription.model.DeadLetter;
+import com.webatspeed.subscription.model.DistributionRange;
+import com.webatspeed.subscription.model.DistributionStatus;
+import com.webatspeed.subscription.model.Recipient;
+import com.webatspeed.subscription.model.SendLedgerEntry;
+import com.webatspeed.subscription.service.Subscriber;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+@Tag("load")
+@SpringBootTest
+public class DistributionLoadTests {
+
+  private static final int NUM_SUBSCRIBERS = Integer.getInteger("load.subscribers", 10_000);
+
+  private static final int ATTACHMENT_SIZE = Integer.getInteger("load.attachment-size", 256_000);
+
+  private static final long SEED = Long.getLong("load.seed", 42);
+
+  private static final Path REPORT = Path.of("build", "reports", "load", "distribution.txt");
+
+  private static final AwsStandIn STAND_IN = standIn();
+
+  @Autowired private Subscriber subscriber;
+
+  @Autowired private SubscriptionRepository subscriptionRepository;
+
+  @Autowired private DistributionJobRepository jobRepository;
+
+  @Autowired private MongoTemplate mongoTemplate;
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  @DynamicPropertySource
+  static void standInProperties(DynamicPropertyRegistry registry) {
+    System.setProperty("aws.accessKeyId", "load-test");
+    System.setProperty("aws.secretAccessKey", "load-test");
+    registry.add("cloud.aws.endpoint", () -> STAND_IN.endpoint().toString());
+    registry.add("email.distribution-sender", () -> System.getProperty("load.sender", "async"));
+    registry.add("email.distribution-mode", () -> System.getProperty("load.mode", "raw"));
+    registry.add(
+        "email.distribution-in-flight", () -> System.getProperty("load.in-flight", "64"));
+    registry.add(
+        "email.distribution-concurrency", () -> System.getProperty("load.concurrency", "16"));
+    registry.add("email.distribution-ranges", () -> System.getProperty("load.ranges", "16"));
+    registry.add("email.attachment-ttl", () -> "1h");
+    registry.add("email.template-ttl", () -> "1h");
+    registry.add("resilience4j.ratelimiter.instances.ses.limit-refresh-period", () -> "1s");
+    registry.add("resilience4j.ratelimiter.instances.ses.timeout-duration", () -> "1m");
+  }
+
+  @AfterEach
+  void cleanUp() {
+    subscriptionRepository.deleteAll();
+    jobRepository.deleteAll();
+    mongoTemplate.remove(DistributionRange.class).all();
+    mongoTemplate.remove(DeadLetter.class).all();
+    mongoTemplate.remove(SendLedgerEntry.class).all();
+  }
+
+  @AfterAll
+  static void stopStandIn() {
+    STAND_IN.close();
+  }
+
+  @Test
+  void distributeShouldReportThroughputLatencyHeapAndScanTime(TestReporter reporter)
+      throws IOException {
+    new SubscriberGenerator(mongoTemplate, SEED).seed(NUM_SUBSCRIBERS);
+    var scanTime = scanTime();
+    var heapSampler = Executors.newSingleThreadScheduledExecutor();
+    var peakHeap = new AtomicLong();
+    var memory = ManagementFactory.getMemoryMXBean();
+    heapSampler.scheduleAtFixedRate(
+        () -> peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+        0,
+        100,
+        TimeUnit.MILLISECONDS);
+
+    var start = System.nanoTime();
+    subscriber.distribute();
+    await()
+        .atMost(Duration.ofHours(6))
+        .pollInterval(Duration.ofMillis(200))
+        .until(
+            () ->
+                jobRepository.existsByStatus(DistributionStatus.COMPLETED)
+                    || jobRepository.existsByStatus(DistributionStatus.FAILED));
+    var elapsed = Duration.ofNanos(System.nanoTime() - start);
+    heapSampler.shutdownNow();
+
+    var job = jobRepository.findAll().get(0);
+    var sendLatencies = meterRegistry.get("distribution.send").timer().takeSnapshot();
+    var report =
+        Map.ofEntries(
+            Map.entry("subscribers", String.valueOf(NUM_SUBSCRIBERS)),
+            Map.entry("status", job.getStatus().name()),
+            Map.entry("sent", String.valueOf(job.getNumSent())),
+            Map.entry("failed", String.valueOf(job.getNumFailed())),
+            Map.entry("elapsed", elapsed.toString()),
+            Map.entry(
+                "messagesPerSecond",
+                String.format("%.1f", job.getNumSent() / (elapsed.toNanos() / 1e9))),
+            Map.entry("sendLatencyP50", percentile(sendLatencies, 0.5).toString()),
+            Map.entry("sendLatencyP99", percentile(sendLatencies, 0.99).toString()),
+            Map.entry(
+                "throttledOrFailedRequests",
+                STAND_IN.getNumThrottled() + "/" + STAND_IN.getNumErrors()),
+            Map.entry("peakHeapMb", String.valueOf(peakHeap.get() / (1024 * 1024))),
+            Map.entry("mongoScan", scanTime.toString()));
+    report.forEach(reporter::publishEntry);
+    writeReport(report);
+
+    assertEquals(DistributionStatus.COMPLETED, job.getStatus());
+    assertEquals(NUM_SUBSCRIBERS, job.getNumSent() + job.getNumFailed());
+  }
+
+  private static Duration percentile(HistogramSnapshot snapshot, double percentile) {
+    return Arrays.stream(snapshot.percentileValues())
+        .filter(p -> p.percentile() == percentile)
+        .map(p -> Duration.ofNanos((long) p.value(TimeUnit.NANOSECONDS)))
+        .findFirst()
+        .orElse(Duration.ZERO);
+  }
+
+  private Duration scanTime() {
+    var start = System.nanoTime();
+    String lastId = null;
+    List<Recipient> recipients;
+    do {
+      recipients = subscriptionRepository.findRecipientsAfter(lastId, null, 1_000);
+      if (!recipients.isEmpty()) {
+        lastId = recipients.get(recipients.size() - 1).id();
+      }
+    } while (!recipients.isEmpty());
+
+    return Duration.ofNanos(System.nanoTime() - start);
+  }
+
+  private static void writeReport(Map<String, String> report) throws IOException {
+    var lines =
+        report.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .map(e -> e.getKey() + ": " + e.getValue())
+            .toList();
+    Files.createDirectories(REPORT.getParent());
+    Files.write(REPORT, lines);
+  }
+
+  private static AwsStandIn standIn() {
+    var behavior =
+        new AwsStandIn.Behavior(
+            Duration.ofMillis(Long.getLong("load.latency-ms", 20)),
+            Double.parseDouble(System.getProperty("load.throttle-rate", "0")),
+            Double.parseDouble(System.getProperty("load.error-rate", "0")),
+            Integer.getInteger("load.max-send-rate", 1_000));
+    var attachment = new byte[ATTACHMENT_SIZE];
+    new Random(SEED).nextBytes(attachment);
+    try {
+      return new AwsStandIn(behavior, Map.of("cv.pdf", attachment));
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
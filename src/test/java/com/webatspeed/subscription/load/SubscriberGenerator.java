@@ -0,0 +1,50 @@
+package com.webatspeed.subscription.load;
+
+import com.webatspeed.subscription.model.Subscription;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+import net.datafaker.Faker;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+public class SubscriberGenerator {
+
+  private static final int BATCH_SIZE = 10_000;
+
+  private final MongoTemplate mongoTemplate;
+
+  private final Faker faker;
+
+  private final Random random;
+
+  public SubscriberGenerator(MongoTemplate mongoTemplate, long seed) {
+    this.mongoTemplate = mongoTemplate;
+    random = new Random(seed);
+    faker = new Faker(Locale.ENGLISH, random);
+  }
+
+  public void seed(int numSubscribers) {
+    var batch = new ArrayList<Subscription>(BATCH_SIZE);
+    for (int i = 0; i < numSubscribers; i++) {
+      batch.add(subscriptionOf(i));
+      if (batch.size() == BATCH_SIZE) {
+        mongoTemplate.insert(batch, Subscription.class);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      mongoTemplate.insert(batch, Subscription.class);
+    }
+  }
+
+  private Subscription subscriptionOf(int index) {
+    var subscription = new Subscription();
+    subscription.setEmail(index + "." + faker.internet().emailAddress());
+    subscription.setUserUnsubscribeToken(new UUID(random.nextLong(), random.nextLong()).toString());
+    subscription.setConfirmedByUser(true);
+    subscription.setConfirmedByOwner(true);
+
+    return subscription;
+  }
+}
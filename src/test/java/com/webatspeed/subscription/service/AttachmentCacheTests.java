@@ -0,0 +1,148 @@
+package com.webatspeed.subscription.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.webatspeed.subscription.SubscriptionMapper;
+import com.webatspeed.subscription.config.MailConfiguration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+public class AttachmentCacheTests {
+
+  private S3Client storageClient;
+
+  private MailConfiguration mailConfiguration;
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private AttachmentCache attachmentCache;
+
+  @BeforeEach
+  void setUp() {
+    storageClient = mock(S3Client.class);
+    mailConfiguration = new MailConfiguration();
+    mailConfiguration.setAttachmentBucket("attachments");
+    mailConfiguration.setAttachmentTtl(Duration.ofMinutes(10));
+    meterRegistry = new SimpleMeterRegistry();
+    attachmentCache =
+        new AttachmentCache(
+            storageClient,
+            mailConfiguration,
+            new SubscriptionMapper(),
+            new SubscriptionMetrics(meterRegistry));
+  }
+
+  @Test
+  void attachmentsShouldFollowContinuationTokens() {
+    givenListedObjects(List.of(objectOf("a.pdf", "1")), "next", List.of(objectOf("b.pdf", "2")));
+    givenGetObjectResult();
+
+    var attachments = attachmentCache.attachments();
+
+    assertEquals(2, attachments.size());
+    assertEquals("a.pdf", attachments.get(0).key());
+    assertEquals("b.pdf", attachments.get(1).key());
+    verify(storageClient)
+        .listObjectsV2(argThat((ListObjectsV2Request r) -> "next".equals(r.continuationToken())));
+    assertEquals(2, lookups("miss"));
+  }
+
+  @Test
+  void attachmentsShouldBeServedFromCacheWithinTtl() {
+    givenListedObjects(List.of(objectOf("a.pdf", "1")));
+    givenGetObjectResult();
+
+    attachmentCache.attachments();
+    attachmentCache.attachments();
+
+    verify(storageClient, times(1)).listObjectsV2(any(ListObjectsV2Request.class));
+    verify(storageClient, times(1)).getObjectAsBytes(any(GetObjectRequest.class));
+  }
+
+  @Test
+  void refreshShouldNotDownloadObjectsWithUnchangedETag() {
+    givenListedObjects(List.of(objectOf("a.pdf", "1")));
+    givenGetObjectResult();
+
+    attachmentCache.refresh();
+    attachmentCache.refresh();
+
+    verify(storageClient, times(2)).listObjectsV2(any(ListObjectsV2Request.class));
+    verify(storageClient, times(1)).getObjectAsBytes(any(GetObjectRequest.class));
+    assertEquals(1, lookups("hit"));
+    assertEquals(1, lookups("miss"));
+  }
+
+  @Test
+  void refreshShouldRevalidateChangedETagWithIfNoneMatch() {
+    givenListedObjects(List.of(objectOf("a.pdf", "1")));
+    givenGetObjectResult();
+    attachmentCache.refresh();
+
+    givenListedObjects(List.of(objectOf("a.pdf", "2")));
+    givenNotModified();
+    attachmentCache.refresh();
+
+    assertEquals("2", attachmentCache.attachments().get(0).eTag());
+    verify(storageClient)
+        .getObjectAsBytes(argThat((GetObjectRequest r) -> "1".equals(r.ifNoneMatch())));
+    assertEquals(1, lookups("hit"));
+  }
+
+  private double lookups(String result) {
+    var counter = meterRegistry.find("attachment.cache.requests").tag("result", result).counter();
+
+    return counter == null ? 0 : counter.count();
+  }
+
+  private void givenListedObjects(List<S3Object> objects) {
+    var response = ListObjectsV2Response.builder().contents(objects).isTruncated(false).build();
+
+    when(storageClient.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(response);
+  }
+
+  private void givenListedObjects(
+      List<S3Object> firstObjects, String continuationToken, List<S3Object> secondObjects) {
+    var firstResponse =
+        ListObjectsV2Response.builder()
+            .contents(firstObjects)
+            .isTruncated(true)
+            .nextContinuationToken(continuationToken)
+            .build();
+    var secondResponse =
+        ListObjectsV2Response.builder().contents(secondObjects).isTruncated(false).build();
+
+    when(storageClient.listObjectsV2(any(ListObjectsV2Request.class)))
+        .thenReturn(firstResponse, secondResponse);
+  }
+
+  private void givenGetObjectResult() {
+    var response =
+        GetObjectResponse.builder().contentType(MediaType.APPLICATION_PDF_VALUE).build();
+    var objectBytes = ResponseBytes.fromByteArray(response, new byte[] {1, 2, 3});
+
+    when(storageClient.getObjectAsBytes(any(GetObjectRequest.class))).thenReturn(objectBytes);
+  }
+
+  private void givenNotModified() {
+    when(storageClient.getObjectAsBytes(any(GetObjectRequest.class)))
+        .thenThrow((S3Exception) S3Exception.builder().statusCode(304).build());
+  }
+
+  private static S3Object objectOf(String key, String eTag) {
+    return S3Object.builder().key(key).eTag(eTag).build();
+  }
+}
@@ -0,0 +1,88 @@
+package com.webatspeed.subscription.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.webatspeed.subscription.config.MailConfiguration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.sesv2.model.EmailTemplateContent;
+
+public class ContentFingerprintTests {
+
+  private AttachmentCache attachmentCache;
+
+  private TemplateCache templateCache;
+
+  private MailConfiguration mailConfiguration;
+
+  private ContentFingerprint contentFingerprint;
+
+  @BeforeEach
+  void setUp() {
+    attachmentCache = mock(AttachmentCache.class);
+    templateCache = mock(TemplateCache.class);
+    mailConfiguration = new MailConfiguration();
+    mailConfiguration.setDefaultSender("test@email.local");
+    mailConfiguration.setDistributionMode(DistributionMode.RAW);
+    contentFingerprint = new ContentFingerprint(attachmentCache, templateCache, mailConfiguration);
+    givenTemplate("Updated CV");
+  }
+
+  @Test
+  void currentShouldNotDependOnAttachmentOrder() {
+    givenAttachments(attachmentOf("a.pdf", "1"), attachmentOf("b.pdf", "2"));
+    var fingerprint = contentFingerprint.current();
+
+    givenAttachments(attachmentOf("b.pdf", "2"), attachmentOf("a.pdf", "1"));
+
+    assertEquals(fingerprint, contentFingerprint.current());
+  }
+
+  @Test
+  void currentShouldChangeWithAttachmentETag() {
+    givenAttachments(attachmentOf("a.pdf", "1"));
+    var fingerprint = contentFingerprint.current();
+
+    givenAttachments(attachmentOf("a.pdf", "2"));
+
+    assertNotEquals(fingerprint, contentFingerprint.current());
+  }
+
+  @Test
+  void currentShouldChangeWithTemplate() {
+    givenAttachments(attachmentOf("a.pdf", "1"));
+    var fingerprint = contentFingerprint.current();
+
+    givenTemplate("Updated CV again");
+
+    assertNotEquals(fingerprint, contentFingerprint.current());
+  }
+
+  @Test
+  void currentShouldIgnoreAttachmentsInBulkMode() {
+    mailConfiguration.setDistributionMode(DistributionMode.BULK);
+    var fingerprint = contentFingerprint.current();
+
+    givenAttachments(attachmentOf("a.pdf", "2"));
+
+    assertEquals(fingerprint, contentFingerprint.current());
+    verifyNoInteractions(attachmentCache);
+  }
+
+  private void givenTemplate(String subject) {
+    var content =
+        EmailTemplateContent.builder().subject(subject).text("text").html("<p>html</p>").build();
+
+    when(templateCache.contentOf(TemplateName.UPDATED_CV)).thenReturn(content);
+  }
+
+  private void givenAttachments(Attachment... attachments) {
+    when(attachmentCache.attachments()).thenReturn(List.of(attachments));
+  }
+
+  private static Attachment attachmentOf(String key, String eTag) {
+    return new Attachment(key, eTag, "application/pdf", new byte[] {1, 2, 3});
+  }
+}
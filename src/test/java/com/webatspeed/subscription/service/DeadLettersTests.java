@@ -0,0 +1,98 @@
+package com.webatspeed.subscription.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.webatspeed.subscription.config.MongoConfiguration;
+import com.webatspeed.subscription.model.DeadLetter;
+import com.webatspeed.subscription.model.Recipient;
+import java.util.List;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+@DataMongoTest
+@Import(MongoConfiguration.class)
+public class DeadLettersTests {
+
+  @Autowired private MongoTemplate mongoTemplate;
+
+  private DeadLetters deadLetters;
+
+  @BeforeEach
+  void setUp() {
+    deadLetters = new DeadLetters(mongoTemplate);
+  }
+
+  @AfterEach
+  void cleanUp() {
+    mongoTemplate.remove(DeadLetter.class).all();
+  }
+
+  @Test
+  void addShouldKeepOneDeadLetterPerSubscription() {
+    var recipient = recipientOf(new ObjectId().toHexString());
+
+    deadLetters.add("job", recipient, "rejected");
+    deadLetters.add("job", recipient, "rejected again");
+
+    var stored = mongoTemplate.findAll(DeadLetter.class);
+    assertEquals(1, stored.size());
+    assertEquals(recipient.id(), stored.get(0).getSubscriptionId());
+    assertEquals(2, stored.get(0).getNumFailures());
+    assertEquals("rejected again", stored.get(0).getReason());
+  }
+
+  @Test
+  void findAfterShouldPageBySubscriptionId() {
+    var ids =
+        List.of(
+            new ObjectId().toHexString(),
+            new ObjectId().toHexString(),
+            new ObjectId().toHexString());
+    ids.forEach(id -> deadLetters.add("job", recipientOf(id), "rejected"));
+
+    var firstPage = deadLetters.findAfter(null, 2);
+    var secondPage = deadLetters.findAfter(firstPage.get(1).getSubscriptionId(), 2);
+
+    assertEquals(ids.subList(0, 2), idsOf(firstPage));
+    assertEquals(ids.subList(2, 3), idsOf(secondPage));
+  }
+
+  @Test
+  void removeShouldDeleteDeadLetterOfSubscription() {
+    var recipient = recipientOf(new ObjectId().toHexString());
+    deadLetters.add("job", recipient, "rejected");
+
+    deadLetters.remove(recipient.id());
+
+    assertEquals(0, deadLetters.count());
+  }
+
+  @Test
+  void removeAllShouldDeleteOnlyDeadLettersOfSubscriptions() {
+    var ids =
+        List.of(
+            new ObjectId().toHexString(),
+            new ObjectId().toHexString(),
+            new ObjectId().toHexString());
+    ids.forEach(id -> deadLetters.add("job", recipientOf(id), "rejected"));
+
+    deadLetters.removeAll(ids.subList(0, 2));
+    deadLetters.removeAll(List.of());
+
+    assertEquals(ids.subList(2, 3), idsOf(deadLetters.findAfter(null, 10)));
+  }
+
+  private static List<String> idsOf(List<DeadLetter> page) {
+    return page.stream().map(DeadLetter::getSubscriptionId).toList();
+  }
+
+  private static Recipient recipientOf(String id) {
+    return new Recipient(id, id + "@email.local", "token");
+  }
+}
@@ -0,0 +1,213 @@
+package com.webatspeed.subscription.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.webatspeed.subscription.DistributionJobRepository;
+import com.webatspeed.subscription.config.MailConfiguration;
+import com.webatspeed.subscription.config.MongoConfiguration;
+import com.webatspeed.subscription.exception.DistributionStateException;
+import com.webatspeed.subscription.exception.DistributionUnknownException;
+import com.webatspeed.subscription.model.DistributionJob;
+import com.webatspeed.subscription.model.DistributionRange;
+import com.webatspeed.subscription.model.DistributionStatus;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+@DataMongoTest
+@Import(MongoConfiguration.class)
+public class DistributionControlTests {
+
+  @Autowired private MongoTemplate mongoTemplate;
+
+  @Autowired private DistributionJobRepository jobRepository;
+
+  private Subscriber subscriber;
+
+  private SendRateController rateController;
+
+  private DistributionControl distributionControl;
+
+  @BeforeEach
+  void setUp() {
+    subscriber = mock(Subscriber.class);
+    rateController = mock(SendRateController.class);
+    var mailConfiguration = new MailConfiguration();
+    mailConfiguration.setDistributionRanges(1);
+    mailConfiguration.setDistributionLeaseTtl(Duration.ofMinutes(1));
+    distributionControl =
+        new DistributionControl(
+            mongoTemplate,
+            jobRepository,
+            new DistributionRanges(mongoTemplate, mailConfiguration),
+            subscriber,
+            rateController,
+            new DeadLetters(mongoTemplate));
+  }
+
+  @AfterEach
+  void cleanUp() {
+    jobRepository.deleteAll();
+    mongoTemplate.remove(DistributionRange.class).all();
+  }
+
+  @Test
+  void progressShouldFailWithoutDistribution() {
+    assertThrows(DistributionUnknownException.class, distributionControl::progress);
+  }
+
+  @Test
+  void progressShouldSumRangesOfLatestDistribution() {
+    var job = givenJob(DistributionStatus.RUNNING, 10);
+    givenRange(job, 3, 1);
+    givenRange(job, 2, 0);
+
+    var progress = distributionControl.progress();
+
+    assertEquals(job.getId(), progress.id());
+    assertEquals(DistributionStatus.RUNNING, progress.status());
+    assertEquals(10, progress.numRecipients());
+    assertEquals(6, progress.numProcessed());
+    assertEquals(5, progress.numSent());
+    assertEquals(1, progress.numFailed());
+  }
+
+  @Test
+  void progressOfShouldEstimateCompletionFromRateSinceResume() {
+    var now = Instant.now();
+    var job = new DistributionJob();
+    job.setNumRecipients(100);
+    job.setResumedAt(now.minusSeconds(10));
+    job.setNumAttemptedAtResume(10);
+    var range = new DistributionRange();
+    range.setNumSent(30);
+
+    var progress = DistributionControl.progressOf(job, List.of(range), 0, now);
+
+    assertEquals(2.0, progress.sendRate());
+    assertEquals(now.plusSeconds(35), progress.estimatedCompletionAt());
+  }
+
+  @Test
+  void progressOfShouldNotCountSkippedRecipientsTowardsRate() {
+    var now = Instant.now();
+    var job = new DistributionJob();
+    job.setNumRecipients(100);
+    job.setResumedAt(now.minusSeconds(10));
+    var range = new DistributionRange();
+    range.setNumSkipped(60);
+    range.setNumSent(18);
+    range.setNumFailed(2);
+
+    var progress = DistributionControl.progressOf(job, List.of(range), 0, now);
+
+    assertEquals(80, progress.numProcessed());
+    assertEquals(2.0, progress.sendRate());
+    assertEquals(now.plusSeconds(10), progress.estimatedCompletionAt());
+  }
+
+  @Test
+  void pauseShouldOnlyPauseRunningDistribution() {
+    var job = givenJob(DistributionStatus.RUNNING, 0);
+
+    distributionControl.pause();
+
+    assertEquals(DistributionStatus.PAUSED, statusOf(job));
+    assertThrows(DistributionStateException.class, distributionControl::pause);
+  }
+
+  @Test
+  void resumeShouldRestartPausedDistribution() {
+    var job = givenJob(DistributionStatus.PAUSED, 10);
+    givenRange(job, 4, 0);
+
+    distributionControl.resume();
+
+    var resumed = jobRepository.findById(job.getId()).orElseThrow();
+    assertEquals(DistributionStatus.RUNNING, resumed.getStatus());
+    assertEquals(4, resumed.getNumAttemptedAtResume());
+    assertNotNull(resumed.getResumedAt());
+    verify(subscriber).distribute();
+  }
+
+  @Test
+  void resumeShouldFailWithoutPausedDistribution() {
+    givenJob(DistributionStatus.RUNNING, 0);
+
+    assertThrows(DistributionStateException.class, distributionControl::resume);
+    verify(subscriber, never()).distribute();
+  }
+
+  @Test
+  void cancelShouldCancelPausedDistribution() {
+    var job = givenJob(DistributionStatus.PAUSED, 0);
+
+    distributionControl.cancel();
+
+    assertEquals(DistributionStatus.CANCELLED, statusOf(job));
+    assertThrows(DistributionStateException.class, distributionControl::cancel);
+  }
+
+  @Test
+  void limitSendRateShouldPersistAndApplyRate() {
+    var job = givenJob(DistributionStatus.RUNNING, 0);
+
+    distributionControl.limitSendRate(5.0);
+
+    assertEquals(5.0, jobRepository.findById(job.getId()).orElseThrow().getMaxSendRate());
+    verify(rateController).limitTo(5.0);
+
+    distributionControl.limitSendRate(null);
+
+    assertNull(jobRepository.findById(job.getId()).orElseThrow().getMaxSendRate());
+  }
+
+  @Test
+  void changesShouldRejectStaleSavesOfDistribution() {
+    var job = givenJob(DistributionStatus.RUNNING, 0);
+
+    distributionControl.limitSendRate(5.0);
+    job.setStatus(DistributionStatus.COMPLETED);
+
+    assertThrows(OptimisticLockingFailureException.class, () -> jobRepository.save(job));
+    distributionControl.cancel();
+    assertEquals(DistributionStatus.CANCELLED, statusOf(job));
+  }
+
+  @Test
+  void limitSendRateShouldFailOnFinishedDistribution() {
+    givenJob(DistributionStatus.COMPLETED, 0);
+
+    assertThrows(DistributionStateException.class, () -> distributionControl.limitSendRate(5.0));
+    verify(rateController, never()).limitTo(any());
+  }
+
+  private DistributionJob givenJob(DistributionStatus status, long numRecipients) {
+    var job = new DistributionJob();
+    job.setStatus(status);
+    job.setNumRecipients(numRecipients);
+    job.setResumedAt(Instant.now());
+
+    return jobRepository.save(job);
+  }
+
+  private void givenRange(DistributionJob job, long numSent, long numFailed) {
+    var range = new DistributionRange(job.getId(), null, null);
+    range.setNumSent(numSent);
+    range.setNumFailed(numFailed);
+    mongoTemplate.insert(range);
+  }
+
+  private DistributionStatus statusOf(DistributionJob job) {
+    return jobRepository.findById(job.getId()).orElseThrow().getStatus();
+  }
+}
@@ -0,0 +1,117 @@
+package com.webatspeed.subscription.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.webatspeed.subscription.config.MailConfiguration;
+import com.webatspeed.subscription.model.Lease;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+@DataMongoTest
+public class DistributionLeaseTests {
+
+  @Autowired private MongoTemplate mongoTemplate;
+
+  private final MutableClock clock = new MutableClock(Instant.now());
+
+  @AfterEach
+  void cleanUp() {
+    mongoTemplate.remove(Lease.class).all();
+  }
+
+  @Test
+  void tryAcquireShouldGrantLeaseToSingleInstance() {
+    var first = leaseOf(Duration.ofMinutes(1));
+    var second = leaseOf(Duration.ofMinutes(1));
+
+    assertTrue(first.tryAcquire());
+    assertFalse(second.tryAcquire());
+    assertTrue(first.isHeld());
+    assertFalse(second.isHeld());
+    assertTrue(second.isActive());
+  }
+
+  @Test
+  void releaseShouldAllowAnotherInstanceToAcquire() {
+    var first = leaseOf(Duration.ofMinutes(1));
+    var second = leaseOf(Duration.ofMinutes(1));
+    first.tryAcquire();
+
+    first.release();
+
+    assertFalse(first.isActive());
+    assertTrue(second.tryAcquire());
+  }
+
+  @Test
+  void expiredLeaseShouldBeTakenOverAndLostByItsHolder() {
+    var first = leaseOf(Duration.ofMinutes(1));
+    var second = leaseOf(Duration.ofMinutes(1));
+    first.tryAcquire();
+    clock.advance(Duration.ofMinutes(2));
+
+    assertTrue(second.tryAcquire());
+    first.heartbeat();
+
+    assertFalse(first.isHeld());
+    first.release();
+    assertTrue(second.isActive());
+  }
+
+  @Test
+  void heartbeatShouldExtendHeldLease() {
+    var first = leaseOf(Duration.ofMinutes(1));
+    var second = leaseOf(Duration.ofMinutes(1));
+    first.tryAcquire();
+    clock.advance(Duration.ofSeconds(40));
+
+    first.heartbeat();
+    clock.advance(Duration.ofSeconds(40));
+
+    assertTrue(first.isHeld());
+    assertFalse(second.tryAcquire());
+  }
+
+  private DistributionLease leaseOf(Duration ttl) {
+    var mailConfiguration = new MailConfiguration();
+    mailConfiguration.setDistributionLeaseTtl(ttl);
+
+    return new DistributionLease(mongoTemplate, mailConfiguration, clock);
+  }
+
+  private static class MutableClock extends Clock {
+
+    private Instant now;
+
+    MutableClock(Instant now) {
+      this.now = now;
+    }
+
+    void advance(Duration duration) {
+      now = now.plus(duration);
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+  }
+}
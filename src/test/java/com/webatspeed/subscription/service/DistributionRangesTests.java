@@ -0,0 +1,129 @@
+package com.webatspeed.subscription.service;
+
+import static com.webatspeed.subscription.service.SubscriptionFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.webatspeed.subscription.SubscriptionRepository;
+import com.webatspeed.subscription.config.MailConfiguration;
+import com.webatspeed.subscription.config.MongoConfiguration;
+import com.webatspeed.subscription.model.DistributionJob;
+import com.webatspeed.subscription.model.DistributionRange;
+import com.webatspeed.subscription.model.RangeStatus;
+import com.webatspeed.subscription.model.Recipient;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+@DataMongoTest
+@Import(MongoConfiguration.class)
+public class DistributionRangesTests {
+
+  @Autowired private MongoTemplate mongoTemplate;
+
+  @Autowired private SubscriptionRepository subscriptionRepository;
+
+  private DistributionJob job;
+
+  @BeforeEach
+  void setUp() {
+    job = new DistributionJob();
+    job.setId(UUID.randomUUID().toString());
+  }
+
+  @AfterEach
+  void cleanUp() {
+    subscriptionRepository.deleteAll();
+    mongoTemplate.remove(DistributionRange.class).all();
+  }
+
+  @Test
+  void planShouldSplitConfirmedSubscriptionsIntoContiguousRanges() {
+    givenSavedSubscriptions(subscriptionRepository, 12, true);
+
+    var planned = rangesOf(4, Duration.ofMinutes(1)).plan(job);
+
+    assertEquals(4, planned.size());
+    assertNull(planned.get(0).getLastSubscriptionId());
+    assertNull(planned.get(3).getUpToId());
+    var ids = new HashSet<String>();
+    for (var range : planned) {
+      assertEquals(RangeStatus.PENDING, range.getStatus());
+      subscriptionRepository
+          .findRecipientsAfter(range.getLastSubscriptionId(), range.getUpToId(), 100)
+          .stream()
+          .map(Recipient::id)
+          .forEach(id -> assertTrue(ids.add(id)));
+    }
+    assertEquals(12, ids.size());
+  }
+
+  @Test
+  void planShouldCreateSingleOpenRangeWithoutSubscriptions() {
+    var planned = rangesOf(4, Duration.ofMinutes(1)).plan(job);
+
+    assertEquals(1, planned.size());
+    assertNull(planned.get(0).getLastSubscriptionId());
+    assertNull(planned.get(0).getUpToId());
+  }
+
+  @Test
+  void claimShouldHandOutEachRangeOnce() {
+    givenSavedSubscriptions(subscriptionRepository, 6, true);
+    var first = rangesOf(2, Duration.ofMinutes(1));
+    var second = rangesOf(2, Duration.ofMinutes(1));
+    first.plan(job);
+
+    var firstClaim = first.claim(job.getId()).orElseThrow();
+    var secondClaim = second.claim(job.getId()).orElseThrow();
+
+    assertNotEquals(firstClaim.getId(), secondClaim.getId());
+    assertTrue(first.claim(job.getId()).isEmpty());
+    assertEquals(2, first.numActiveWorkers(job.getId()));
+    assertTrue(first.complete(firstClaim));
+    assertFalse(first.isFinished(job.getId()));
+    assertTrue(second.complete(secondClaim));
+    assertTrue(first.isFinished(job.getId()));
+  }
+
+  @Test
+  void expiredClaimShouldBeStolen() throws InterruptedException {
+    var first = rangesOf(1, Duration.ofMillis(1));
+    var second = rangesOf(1, Duration.ofMinutes(1));
+    first.plan(job);
+    var abandoned = first.claim(job.getId()).orElseThrow();
+    Thread.sleep(10);
+
+    var stolen = second.claim(job.getId()).orElseThrow();
+
+    assertEquals(abandoned.getId(), stolen.getId());
+    assertFalse(first.checkpoint(abandoned));
+    assertTrue(second.checkpoint(stolen));
+  }
+
+  @Test
+  void retryFailedShouldMakeFailedRangesClaimable() {
+    var ranges = rangesOf(1, Duration.ofMinutes(1));
+    ranges.plan(job);
+    ranges.fail(ranges.claim(job.getId()).orElseThrow());
+    assertTrue(ranges.isFinished(job.getId()));
+
+    ranges.retryFailed(job.getId());
+
+    assertTrue(ranges.claim(job.getId()).isPresent());
+  }
+
+  private DistributionRanges rangesOf(int numRanges, Duration claimTtl) {
+    var mailConfiguration = new MailConfiguration();
+    mailConfiguration.setDistributionRanges(numRanges);
+    mailConfiguration.setDistributionLeaseTtl(claimTtl);
+
+    return new DistributionRanges(mongoTemplate, mailConfiguration);
+  }
+}
@@ -0,0 +1,165 @@
+package com.webatspeed.subscription.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.webatspeed.subscription.config.MailConfiguration;
+import com.webatspeed.subscription.exception.EmailSendException;
+import com.webatspeed.subscription.exception.TransientSendException;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RequestNotPermitted;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.sesv2.model.SesV2Exception;
+import software.amazon.awssdk.services.sesv2.model.TooManyRequestsException;
+
+public class DistributionRetriesTests {
+
+  private MailConfiguration mailConfiguration;
+
+  private DistributionRetries retries;
+
+  @BeforeEach
+  void setUp() {
+    mailConfiguration = new MailConfiguration();
+    mailConfiguration.setDistributionMaxAttempts(3);
+    mailConfiguration.setDistributionRetryDelay(Duration.ofMillis(10));
+    mailConfiguration.setDistributionRetryCapacity(10);
+    retries = new DistributionRetries(mailConfiguration);
+  }
+
+  @AfterEach
+  void cleanUp() {
+    retries.destroy();
+  }
+
+  @Test
+  void submitShouldRetryTransientFailureUntilSent() {
+    var numAttempts = new AtomicInteger();
+
+    var sent =
+        retries.submit(
+            () ->
+                numAttempts.incrementAndGet() < 3
+                    ? CompletableFuture.failedFuture(failureOf(503))
+                    : CompletableFuture.completedFuture("sent"));
+
+    assertEquals("sent", sent.join());
+    assertEquals(3, numAttempts.get());
+  }
+
+  @Test
+  void submitShouldGiveUpAfterMaxAttempts() {
+    var numAttempts = new AtomicInteger();
+
+    var sent =
+        retries.submit(
+            () -> {
+              numAttempts.incrementAndGet();
+              return CompletableFuture.failedFuture(failureOf(503));
+            });
+
+    assertThrows(CompletionException.class, sent::join);
+    assertEquals(3, numAttempts.get());
+  }
+
+  @Test
+  void submitShouldNotRetryPermanentFailure() {
+    var numAttempts = new AtomicInteger();
+
+    var sent =
+        retries.submit(
+            () -> {
+              numAttempts.incrementAndGet();
+              throw failureOf(400);
+            });
+
+    assertThrows(CompletionException.class, sent::join);
+    assertEquals(1, numAttempts.get());
+  }
+
+  @Test
+  void submitShouldNotRetryBeyondCapacity() {
+    mailConfiguration.setDistributionRetryCapacity(1);
+    mailConfiguration.setDistributionRetryDelay(Duration.ofSeconds(1));
+    retries.destroy();
+    retries = new DistributionRetries(mailConfiguration);
+    var numAttempts = new AtomicInteger();
+
+    retries.submit(() -> CompletableFuture.failedFuture(failureOf(503)));
+    var sent =
+        retries.submit(
+            () -> {
+              numAttempts.incrementAndGet();
+              return CompletableFuture.failedFuture(failureOf(503));
+            });
+
+    assertThrows(CompletionException.class, sent::join);
+    assertEquals(1, numAttempts.get());
+  }
+
+  @Test
+  void submitShouldResendConcurrentlyOffTheRetryThread() {
+    var resending = new CountDownLatch(2);
+    var resendThreads = ConcurrentHashMap.<String>newKeySet();
+
+    var first = retries.submit(resendAwaiting(resending, resendThreads));
+    var second = retries.submit(resendAwaiting(resending, resendThreads));
+
+    assertEquals("sent", first.join());
+    assertEquals("sent", second.join());
+    assertFalse(resendThreads.contains("distribution-retry"));
+  }
+
+  @Test
+  void isTransientShouldClassifyFailures() {
+    var throttled =
+        (TooManyRequestsException) TooManyRequestsException.builder().statusCode(429).build();
+
+    assertTrue(DistributionRetries.isTransient(failureOf(500)));
+    assertTrue(DistributionRetries.isTransient(new EmailSendException(throttled)));
+    assertTrue(DistributionRetries.isTransient(SdkClientException.create("timeout")));
+    assertTrue(
+        DistributionRetries.isTransient(
+            RequestNotPermitted.createRequestNotPermitted(RateLimiter.ofDefaults("ses"))));
+    assertTrue(DistributionRetries.isTransient(new TransientSendException("ACCOUNT_THROTTLED")));
+    assertFalse(DistributionRetries.isTransient(failureOf(400)));
+    assertFalse(DistributionRetries.isTransient(new IllegalStateException()));
+  }
+
+  private static Supplier<CompletableFuture<String>> resendAwaiting(
+      CountDownLatch resending, Set<String> resendThreads) {
+    var numAttempts = new AtomicInteger();
+
+    return () -> {
+      if (numAttempts.incrementAndGet() == 1) {
+        return CompletableFuture.failedFuture(failureOf(503));
+      }
+      resendThreads.add(Thread.currentThread().getName());
+      resending.countDown();
+      try {
+        return resending.await(2, TimeUnit.SECONDS)
+            ? CompletableFuture.completedFuture("sent")
+            : CompletableFuture.failedFuture(failureOf(400));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return CompletableFuture.failedFuture(e);
+      }
+    };
+  }
+
+  private static EmailSendException failureOf(int statusCode) {
+    return new EmailSendException(
+        (SesV2Exception) SesV2Exception.builder().statusCode(statusCode).build());
+  }
+}
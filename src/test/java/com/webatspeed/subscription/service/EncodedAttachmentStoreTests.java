@@ -0,0 +1,73 @@
+package com.webatspeed.subscription.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.webatspeed.subscription.config.MailConfiguration;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class EncodedAttachmentStoreTests {
+
+  @TempDir private Path directory;
+
+  private EncodedAttachmentStore attachmentStore;
+
+  @BeforeEach
+  void setUp() {
+    var mailConfiguration = new MailConfiguration();
+    mailConfiguration.setAttachmentStore(directory);
+    attachmentStore = new EncodedAttachmentStore(mailConfiguration);
+  }
+
+  @Test
+  void encodedOfShouldHoldMimeBase64OfContent() {
+    var content = new byte[100_000];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte) i;
+    }
+
+    var encoded = attachmentStore.encodedOf(attachmentOf("cv.pdf", content));
+
+    var bytes = new byte[encoded.remaining()];
+    encoded.get(bytes);
+    assertArrayEquals(Base64.getMimeEncoder().encode(content), bytes);
+  }
+
+  @Test
+  void encodedOfShouldStoreSameContentOnce() throws IOException {
+    var content = new byte[] {1, 2, 3};
+
+    attachmentStore.encodedOf(attachmentOf("cv.pdf", content));
+    attachmentStore.encodedOf(attachmentOf("copy.pdf", content.clone()));
+
+    try (var files = Files.list(directory)) {
+      assertEquals(1, files.count());
+    }
+  }
+
+  @Test
+  void retainOnlyShouldDeleteUnreferencedFiles() throws IOException {
+    var kept = attachmentOf("cv.pdf", new byte[] {1, 2, 3});
+    attachmentStore.encodedOf(kept);
+    attachmentStore.encodedOf(attachmentOf("old.pdf", new byte[] {4, 5, 6}));
+
+    attachmentStore.retainOnly(List.of(kept));
+
+    try (var files = Files.list(directory)) {
+      assertEquals(1, files.count());
+    }
+    var bytes = new byte[4];
+    attachmentStore.encodedOf(kept).get(bytes);
+    assertArrayEquals("AQID".getBytes(), bytes);
+  }
+
+  private static Attachment attachmentOf(String key, byte[] content) {
+    return new Attachment(key, "etag", "application/pdf", content);
+  }
+}
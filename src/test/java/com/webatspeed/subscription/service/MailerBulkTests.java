@@ -0,0 +1,82 @@
+package com.webatspeed.subscription.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.webatspeed.subscription.SubscriptionMapper;
+import com.webatspeed.subscription.config.MailConfiguration;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.sesv2.SesV2AsyncClient;
+import software.amazon.awssdk.services.sesv2.SesV2Client;
+import software.amazon.awssdk.services.sesv2.model.BulkEmailEntryResult;
+import software.amazon.awssdk.services.sesv2.model.BulkEmailStatus;
+import software.amazon.awssdk.services.sesv2.model.SendBulkEmailRequest;
+import software.amazon.awssdk.services.sesv2.model.SendBulkEmailResponse;
+
+public class MailerBulkTests {
+
+  private SesV2Client emailClient;
+
+  private Mailer mailer;
+
+  @BeforeEach
+  void setUp() {
+    emailClient = mock(SesV2Client.class);
+    var mailConfiguration = new MailConfiguration();
+    mailConfiguration.setDefaultSender("test@email.local");
+    var rateLimiterRegistry =
+        RateLimiterRegistry.of(
+            RateLimiterConfig.custom()
+                .limitForPeriod(2)
+                .limitRefreshPeriod(Duration.ofMillis(100))
+                .timeoutDuration(Duration.ofMillis(150))
+                .build());
+    var meterRegistry = new SimpleMeterRegistry();
+    mailer =
+        new Mailer(
+            emailClient,
+            mock(SesV2AsyncClient.class),
+            mock(AttachmentCache.class),
+            mock(TemplateCache.class),
+            mock(TemplateRenderer.class),
+            mock(MessageAssembler.class),
+            mailConfiguration,
+            new SubscriptionMapper(),
+            rateLimiterRegistry,
+            new SendRateController(emailClient, rateLimiterRegistry, meterRegistry),
+            new SubscriptionMetrics(meterRegistry));
+  }
+
+  @Test
+  void emailCvInBulkShouldAcquireMorePermitsThanOnePeriodInSlices() {
+    givenSendBulkEmailResult();
+    var tokensByRecipient = new LinkedHashMap<String, String>();
+    IntStream.range(0, 5).forEach(i -> tokensByRecipient.put(i + "@email.local", "token"));
+
+    var results = mailer.emailCvInBulk(tokensByRecipient);
+
+    assertEquals(5, results.size());
+    verify(emailClient).sendBulkEmail(any(SendBulkEmailRequest.class));
+  }
+
+  private void givenSendBulkEmailResult() {
+    when(emailClient.sendBulkEmail(any(SendBulkEmailRequest.class)))
+        .thenAnswer(
+            invocation -> {
+              SendBulkEmailRequest request = invocation.getArgument(0);
+              var results =
+                  request.bulkEmailEntries().stream()
+                      .map(e -> BulkEmailEntryResult.builder().status(BulkEmailStatus.SUCCESS))
+                      .map(BulkEmailEntryResult.Builder::build)
+                      .toList();
+              return SendBulkEmailResponse.builder().bulkEmailEntryResults(results).build();
+            });
+  }
+}
@@ -0,0 +1,97 @@
+package com.webatspeed.subscription.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.sun.management.ThreadMXBean;
+import com.webatspeed.subscription.SubscriptionMapper;
+import com.webatspeed.subscription.config.MailConfiguration;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import software.amazon.awssdk.services.sesv2.model.EmailTemplateContent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MessageAllocationTests {
+
+  private static final int NUM_WARMUPS = 2_000;
+
+  private static final int NUM_MESSAGES = 1_000;
+
+  private static final int ALLOCATION_BUDGET = 64 * 1024;
+
+  private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  @TempDir private Path attachmentDirectory;
+
+  private final SubscriptionMapper mapper = new SubscriptionMapper();
+
+  private MessageAssembler assembler;
+
+  private MessageSkeleton skeleton;
+
+  private TemplateRenderer templateRenderer;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    var mailConfiguration = new MailConfiguration();
+    mailConfiguration.setAttachmentStore(attachmentDirectory);
+    mailConfiguration.setTemplateRendering(TemplateRendering.LOCAL);
+    assembler = new MessageAssembler(new EncodedAttachmentStore(mailConfiguration));
+    var attachment = new Attachment("cv.pdf", "etag", "application/pdf", new byte[256 * 1024]);
+    skeleton = assembler.skeletonOf("test@email.local", List.of(attachment));
+    var content =
+        EmailTemplateContent.builder()
+            .subject("Subject")
+            .text("Hello {{username}},\n" + "x".repeat(1_000))
+            .html("<p>" + "y".repeat(2_000) + "{{token}}</p>")
+            .build();
+    var templateCache =
+        new TemplateCache(null, mailConfiguration, mapper) {
+          @Override
+          public EmailTemplateContent contentOf(TemplateName templateName) {
+            return content;
+          }
+        };
+    templateRenderer = new TemplateRenderer(templateCache, mailConfiguration);
+  }
+
+  @Test
+  void emailCvShouldAllocateLittleBeyondTheMessageItself(TestReporter reporter) throws Exception {
+    assumeTrue(THREADS.isThreadAllocatedMemorySupported());
+    THREADS.setThreadAllocatedMemoryEnabled(true);
+    var to = "recipient@email.local";
+    var token = UUID.randomUUID().toString();
+
+    var messageLength = 0L;
+    for (int i = 0; i < NUM_WARMUPS; i++) {
+      messageLength = send(to, token);
+    }
+
+    var allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+    for (int i = 0; i < NUM_MESSAGES; i++) {
+      send(to, token);
+    }
+    var bytesPerMessage =
+        (THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore) / NUM_MESSAGES;
+
+    reporter.publishEntry("bytesPerMessage", String.valueOf(bytesPerMessage));
+    reporter.publishEntry("messageLength", String.valueOf(messageLength));
+    assertTrue(
+        bytesPerMessage < messageLength + ALLOCATION_BUDGET,
+        bytesPerMessage + " bytes allocated for a message of " + messageLength + " bytes");
+  }
+
+  private long send(String to, String token) throws Exception {
+    var renderedTemplate =
+        templateRenderer.render(TemplateName.UPDATED_CV, to, token).orElseThrow();
+    var rawMessage = assembler.rawMessageOf(skeleton, to, renderedTemplate);
+    var templateData = mapper.templateDataOf(to, token);
+
+    return rawMessage.data().asByteArrayUnsafe().length + templateData.length();
+  }
+}
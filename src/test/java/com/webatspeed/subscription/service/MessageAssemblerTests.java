@@ -0,0 +1,110 @@
+package com.webatspeed.subscription.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.webatspeed.subscription.config.MailConfiguration;
+import jakarta.mail.Message;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import net.datafaker.Faker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.services.sesv2.model.RawMessage;
+
+public class MessageAssemblerTests {
+
+  private static final Faker FAKER = new Faker();
+
+  private static final Session SESSION = Session.getInstance(new Properties());
+
+  @TempDir private Path attachmentDirectory;
+
+  private MessageAssembler assembler;
+
+  @BeforeEach
+  void setUp() {
+    var mailConfiguration = new MailConfiguration();
+    mailConfiguration.setAttachmentStore(attachmentDirectory);
+    assembler = new MessageAssembler(new EncodedAttachmentStore(mailConfiguration));
+  }
+
+  @Test
+  void skeletonOfShouldBeReusedForSameSenderAndAttachments() throws Exception {
+    var attachments = List.of(attachmentOf("cv.pdf"));
+
+    var skeleton = assembler.skeletonOf("test@email.local", attachments);
+
+    assertSame(skeleton, assembler.skeletonOf("test@email.local", List.copyOf(attachments)));
+    assertNotSame(skeleton, assembler.skeletonOf("test@email.local", List.of()));
+  }
+
+  @Test
+  void rawMessageOfShouldSpliceRecipientIntoSkeleton() throws Exception {
+    var to = FAKER.internet().emailAddress();
+    var text = "H\u00e4llo " + "x".repeat(200) + "\nsecond line = end ";
+    var html = "<p>Content2</p>";
+    var skeleton =
+        assembler.skeletonOf(
+            "test@email.local", List.of(attachmentOf("cv.pdf"), attachmentOf("letter.pdf")));
+
+    var rawMessage =
+        assembler.rawMessageOf(skeleton, to, new RenderedTemplate("S\u00fcbject", text, html));
+
+    var message = parse(rawMessage);
+    assertEquals(to, message.getRecipients(Message.RecipientType.TO)[0].toString());
+    assertEquals("test@email.local", message.getFrom()[0].toString());
+    assertEquals("S\u00fcbject", message.getSubject());
+    var content = (MimeMultipart) message.getContent();
+    assertEquals(3, content.getCount());
+    var textAndHtml = (MimeMultipart) content.getBodyPart(0).getContent();
+    assertEquals(text.replace("\n", "\r\n"), textAndHtml.getBodyPart(0).getContent());
+    assertEquals(html, textAndHtml.getBodyPart(1).getContent());
+    assertEquals("cv.pdf", content.getBodyPart(1).getFileName());
+    assertEquals("letter.pdf", content.getBodyPart(2).getFileName());
+    assertArrayEquals(
+        new byte[] {1, 2, 3}, content.getBodyPart(1).getInputStream().readAllBytes());
+  }
+
+  @Test
+  void rawMessageOfShouldSpliceSesRenderedMessage() throws Exception {
+    var to = FAKER.internet().emailAddress();
+    var rendered =
+        new MimeMessage(
+            SESSION,
+            new ByteArrayInputStream(
+                """
+                Subject: A Subject
+                MIME-Version: 1.0
+                Content-Type: multipart/alternative; boundary="b"
+
+                --b
+                Content-Type: text/plain; charset=UTF-8
+
+                Content1
+                --b--
+                """
+                    .getBytes()));
+    var skeleton = assembler.skeletonOf("test@email.local", List.of(attachmentOf("cv.pdf")));
+
+    var rawMessage = assembler.rawMessageOf(skeleton, to, "A Subject", rendered);
+
+    var content = (MimeMultipart) parse(rawMessage).getContent();
+    assertEquals(2, content.getCount());
+    var textAndHtml = (MimeMultipart) content.getBodyPart(0).getContent();
+    assertEquals("Content1", textAndHtml.getBodyPart(0).getContent().toString().strip());
+  }
+
+  private static MimeMessage parse(RawMessage rawMessage) throws Exception {
+    return new MimeMessage(SESSION, rawMessage.data().asInputStream());
+  }
+
+  private static Attachment attachmentOf(String key) {
+    return new Attachment(key, "etag", "application/pdf", new byte[] {1, 2, 3});
+  }
+}
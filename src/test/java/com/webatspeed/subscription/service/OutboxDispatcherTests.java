@@ -0,0 +1,97 @@
+package com.webatspeed.subscription.service;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.webatspeed.subscription.SubscriptionRepository;
+import com.webatspeed.subscription.model.OutboxEmail;
+import com.webatspeed.subscription.model.Subscription;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import net.datafaker.Faker;
+import org.instancio.Instancio;
+import org.instancio.Select;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.sesv2.SesV2Client;
+import software.amazon.awssdk.services.sesv2.model.SendEmailRequest;
+import software.amazon.awssdk.services.sesv2.model.SesV2Exception;
+
+@SpringBootTest
+public class OutboxDispatcherTests {
+
+  private static final Faker FAKER = new Faker();
+
+  @Autowired private OutboxDispatcher outboxDispatcher;
+
+  @Autowired private SubscriptionRepository subscriptionRepository;
+
+  @MockBean private SesV2Client emailClient;
+
+  @MockBean private S3Client storageClient;
+
+  @AfterEach
+  void cleanUp() {
+    subscriptionRepository.deleteAll();
+  }
+
+  @Test
+  void dispatchShouldRetryFailedEmailLaterCountingPersistedAttempts() {
+    givenFailingSends();
+    var subscription = givenSubscriptionWithOutboxEmail(1);
+
+    outboxDispatcher.dispatch();
+
+    var outbox = subscriptionRepository.findById(subscription.getId()).orElseThrow().getOutbox();
+    assertEquals(1, outbox.size());
+    assertEquals(2, outbox.get(0).getNumAttempts());
+    assertTrue(outbox.get(0).getNextAttemptAt().isAfter(Instant.now()));
+  }
+
+  @Test
+  void dispatchShouldDropEmailAfterMaxAttempts() {
+    givenFailingSends();
+    var subscription = givenSubscriptionWithOutboxEmail(2);
+
+    outboxDispatcher.dispatch();
+
+    await()
+        .until(
+            () ->
+                subscriptionRepository
+                    .findById(subscription.getId())
+                    .orElseThrow()
+                    .getOutbox()
+                    .isEmpty());
+    verify(emailClient, atLeastOnce()).sendEmail(any(SendEmailRequest.class));
+  }
+
+  private void givenFailingSends() {
+    when(emailClient.sendEmail(any(SendEmailRequest.class)))
+        .thenThrow(SesV2Exception.builder().statusCode(400).message("rejected").build());
+  }
+
+  private Subscription givenSubscriptionWithOutboxEmail(int numAttempts) {
+    var email = new OutboxEmail(TemplateName.PLEASE_WAIT);
+    email.setNumAttempts(numAttempts);
+    var subscription =
+        Instancio.of(Subscription.class)
+            .set(Select.field("id"), null)
+            .set(Select.field("outbox"), new ArrayList<>(List.of(email)))
+            .set(Select.field("email"), FAKER.internet().emailAddress())
+            .set(Select.field("numTokenErrors"), 0)
+            .set(Select.field("createdAt"), null)
+            .set(Select.field("modifiedAt"), null)
+            .set(Select.field("version"), null)
+            .create();
+
+    return subscriptionRepository.save(subscription);
+  }
+}
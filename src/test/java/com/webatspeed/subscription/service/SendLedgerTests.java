@@ -0,0 +1,63 @@
+package com.webatspeed.subscription.service;
+
+import static com.webatspeed.subscription.service.SubscriptionFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.webatspeed.subscription.SubscriptionRepository;
+import com.webatspeed.subscription.config.MongoConfiguration;
+import com.webatspeed.subscription.model.SendLedgerEntry;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+@DataMongoTest
+@Import(MongoConfiguration.class)
+public class SendLedgerTests {
+
+  @Autowired private MongoTemplate mongoTemplate;
+
+  @Autowired private SubscriptionRepository subscriptionRepository;
+
+  private SendLedger ledger;
+
+  @BeforeEach
+  void setUp() {
+    ledger = new SendLedger(mongoTemplate);
+  }
+
+  @AfterEach
+  void cleanUp() {
+    subscriptionRepository.deleteAll();
+    mongoTemplate.remove(SendLedgerEntry.class).all();
+  }
+
+  @Test
+  void deliveredOfShouldOnlyReturnRecipientsOfFingerprint() {
+    var ids = givenSavedSubscriptions(subscriptionRepository, 3, true);
+    ledger.record("v1", "job", ids.subList(0, 2));
+    ledger.record("v2", "job", ids.subList(1, 2));
+
+    assertEquals(Set.of(ids.get(0)), ledger.deliveredOf("v1", ids));
+    assertEquals(Set.of(ids.get(1)), ledger.deliveredOf("v2", ids));
+    assertTrue(ledger.deliveredOf("v3", ids).isEmpty());
+  }
+
+  @Test
+  void isDeliveredShouldRequireEveryConfirmedSubscription() {
+    var ids = givenSavedSubscriptions(subscriptionRepository, 3, true);
+    givenSavedSubscriptions(subscriptionRepository, 2, false);
+    ledger.record("v1", "job", ids.subList(0, 2));
+
+    assertFalse(ledger.isDelivered("v1"));
+
+    ledger.record("v1", "job", ids.subList(2, 3));
+
+    assertTrue(ledger.isDelivered("v1"));
+    assertFalse(ledger.isDelivered("v2"));
+  }
+}
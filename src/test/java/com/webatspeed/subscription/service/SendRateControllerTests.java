@@ -0,0 +1,147 @@
+package com.webatspeed.subscription.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.sesv2.SesV2Client;
+import software.amazon.awssdk.services.sesv2.model.GetAccountRequest;
+import software.amazon.awssdk.services.sesv2.model.GetAccountResponse;
+import software.amazon.awssdk.services.sesv2.model.SendQuota;
+import software.amazon.awssdk.services.sesv2.model.TooManyRequestsException;
+
+public class SendRateControllerTests {
+
+  private SesV2Client emailClient;
+
+  private RateLimiterRegistry rateLimiterRegistry;
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private SendRateController rateController;
+
+  @BeforeEach
+  void setUp() {
+    emailClient = mock(SesV2Client.class);
+    var config =
+        RateLimiterConfig.custom()
+            .limitForPeriod(10)
+            .limitRefreshPeriod(Duration.ofSeconds(1))
+            .build();
+    rateLimiterRegistry = RateLimiterRegistry.of(config);
+    meterRegistry = new SimpleMeterRegistry();
+    rateController = new SendRateController(emailClient, rateLimiterRegistry, meterRegistry);
+  }
+
+  @Test
+  void seedShouldAdoptAccountMaxSendRate() {
+    givenSendQuota(14.0, 50000.0, 100.0);
+
+    rateController.seed();
+
+    assertEquals(14, rateController.getLimit());
+    assertEquals(14, limitForPeriod());
+    assertEquals(14.0, meterRegistry.get("ses.send.rate").gauge().value());
+    assertEquals(49900.0, meterRegistry.get("ses.quota.remaining").gauge().value());
+  }
+
+  @Test
+  void seedShouldKeepConfiguredLimitWithoutAccount() {
+    rateController.seed();
+
+    assertEquals(10, rateController.getLimit());
+    assertEquals(10, limitForPeriod());
+  }
+
+  @Test
+  void seedShouldKeepConfiguredLimitOnClientError() {
+    when(emailClient.getAccount(any(GetAccountRequest.class)))
+        .thenThrow(SdkClientException.create("unreachable"));
+
+    rateController.seed();
+
+    assertEquals(10, rateController.getLimit());
+    assertFalse(rateController.isQuotaExhausted());
+  }
+
+  @Test
+  void sendsShouldExhaustRemainingQuota() {
+    givenSendQuota(14.0, 200.0, 190.0);
+    rateController.seed();
+
+    rateController.onSent(9);
+    assertFalse(rateController.isQuotaExhausted());
+    rateController.onSent(1);
+
+    assertTrue(rateController.isQuotaExhausted());
+  }
+
+  @Test
+  void throttlingShouldHalveLimit() {
+    rateController.onError(
+        (TooManyRequestsException) TooManyRequestsException.builder().statusCode(429).build());
+
+    assertEquals(5, rateController.getLimit());
+    assertEquals(5, limitForPeriod());
+
+    rateController.onThrottled();
+    rateController.onThrottled();
+    rateController.onThrottled();
+
+    assertEquals(1, rateController.getLimit());
+  }
+
+  @Test
+  void sendsShouldIncreaseLimitAdditivelyUpToCeiling() {
+    rateController.onThrottled();
+
+    rateController.onSent(4);
+    assertEquals(5, rateController.getLimit());
+    rateController.onSent(1);
+    assertEquals(6, rateController.getLimit());
+
+    for (int i = 0; i < 100; i++) {
+      rateController.onSent(1);
+    }
+    assertEquals(10, rateController.getLimit());
+  }
+
+  @Test
+  void limitToShouldCapLimitUntilLifted() {
+    rateController.limitTo(2.5);
+
+    assertEquals(2, rateController.getLimit());
+    assertEquals(2, limitForPeriod());
+    for (int i = 0; i < 100; i++) {
+      rateController.onSent(1);
+    }
+    assertEquals(2, rateController.getLimit());
+
+    rateController.limitTo(null);
+
+    assertEquals(10, rateController.getLimit());
+    assertEquals(10, limitForPeriod());
+  }
+
+  private int limitForPeriod() {
+    return rateLimiterRegistry.rateLimiter("ses").getRateLimiterConfig().getLimitForPeriod();
+  }
+
+  private void givenSendQuota(double maxSendRate, double max24HourSend, double sentLast24Hours) {
+    var sendQuota =
+        SendQuota.builder()
+            .maxSendRate(maxSendRate)
+            .max24HourSend(max24HourSend)
+            .sentLast24Hours(sentLast24Hours)
+            .build();
+    var response = GetAccountResponse.builder().sendQuota(sendQuota).build();
+
+    when(emailClient.getAccount(any(GetAccountRequest.class))).thenReturn(response);
+  }
+}
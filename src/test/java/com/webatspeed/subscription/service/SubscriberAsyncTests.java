@@ -0,0 +1,242 @@
+package com.webatspeed.subscription.service;
+
+import static com.webatspeed.subscription.service.SubscriptionFixtures.*;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+import com.webatspeed.subscription.DistributionJobRepository;
+import com.webatspeed.subscription.SubscriptionRepository;
+import com.webatspeed.subscription.model.DeadLetter;
+import com.webatspeed.subscription.model.DistributionJob;
+import com.webatspeed.subscription.model.DistributionRange;
+import com.webatspeed.subscription.model.DistributionStatus;
+import com.webatspeed.subscription.model.Lease;
+import com.webatspeed.subscription.model.Recipient;
+import com.webatspeed.subscription.model.SendLedgerEntry;
+import com.webatspeed.subscription.model.Subscription;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.sesv2.SesV2AsyncClient;
+import software.amazon.awssdk.services.sesv2.SesV2Client;
+import software.amazon.awssdk.services.sesv2.model.*;
+
+@SpringBootTest(
+    properties = {"email.distribution-sender=async", "email.distribution-in-flight=2"})
+public class SubscriberAsyncTests {
+
+  @Autowired private Subscriber subscriber;
+
+  @Autowired private SubscriptionRepository subscriptionRepository;
+
+  @Autowired private DistributionJobRepository jobRepository;
+
+  @Autowired private MongoTemplate mongoTemplate;
+
+  @Autowired private DeadLetters deadLetters;
+
+  @Autowired private SendLedger ledger;
+
+  @Autowired private ContentFingerprint contentFingerprint;
+
+  @MockBean private SesV2Client emailClient;
+
+  @MockBean private SesV2AsyncClient asyncEmailClient;
+
+  @MockBean private S3Client storageClient;
+
+  @AfterEach
+  void cleanUp() {
+    subscriptionRepository.deleteAll();
+    await().until(() -> !subscriber.isDistributing());
+    jobRepository.deleteAll();
+    mongoTemplate.remove(DistributionRange.class).all();
+    mongoTemplate.remove(SendLedgerEntry.class).all();
+    mongoTemplate.remove(DeadLetter.class).all();
+    mongoTemplate.remove(Lease.class).all();
+  }
+
+  @Test
+  void distributeShouldPipelineSendsWithinWindow() throws IOException {
+    var numberOfSubscriptions = FAKER.number().numberBetween(3, 7);
+    givenSavedSubscriptions(subscriptionRepository, numberOfSubscriptions, true);
+    givenGetEmailTemplateResult(emailClient);
+    givenListObjectsResult(storageClient);
+    givenGetObjectsResponse(storageClient);
+    var inFlight = new AtomicInteger();
+    var maxInFlight = new AtomicInteger();
+    when(asyncEmailClient.sendEmail(any(SendEmailRequest.class)))
+        .thenAnswer(
+            invocation -> {
+              maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+              return CompletableFuture.supplyAsync(
+                      () -> SendEmailResponse.builder().build(),
+                      CompletableFuture.delayedExecutor(200, TimeUnit.MILLISECONDS))
+                  .whenComplete((response, failure) -> inFlight.decrementAndGet());
+            });
+
+    subscriber.distribute();
+
+    await().until(() -> jobRepository.existsByStatus(DistributionStatus.COMPLETED));
+    var job = jobRepository.findAll().get(0);
+    assertEquals(numberOfSubscriptions, job.getNumSent());
+    verify(asyncEmailClient, times(numberOfSubscriptions)).sendEmail(any(SendEmailRequest.class));
+    verify(emailClient, never()).sendEmail(any(SendEmailRequest.class));
+    assertTrue(maxInFlight.get() <= 2);
+  }
+
+  @Test
+  void distributeShouldDeadLetterRecipientOnPermanentSendError() throws IOException {
+    givenSavedSubscriptions(subscriptionRepository, 3, true);
+    givenGetEmailTemplateResult(emailClient);
+    givenListObjectsResult(storageClient);
+    givenGetObjectsResponse(storageClient);
+    var rejected =
+        (SesV2Exception) SesV2Exception.builder().statusCode(400).message("rejected").build();
+    when(asyncEmailClient.sendEmail(any(SendEmailRequest.class)))
+        .thenReturn(CompletableFuture.failedFuture(rejected))
+        .thenReturn(CompletableFuture.completedFuture(SendEmailResponse.builder().build()));
+
+    subscriber.distribute();
+
+    await().until(() -> jobRepository.existsByStatus(DistributionStatus.COMPLETED));
+    var job = jobRepository.findAll().get(0);
+    assertEquals(2, job.getNumSent());
+    assertEquals(1, job.getNumFailed());
+    verify(asyncEmailClient, times(3)).sendEmail(any(SendEmailRequest.class));
+    var deadLetters = mongoTemplate.findAll(DeadLetter.class);
+    assertEquals(1, deadLetters.size());
+    assertEquals(job.getId(), deadLetters.get(0).getJobId());
+    assertTrue(deadLetters.get(0).getReason().contains("rejected"));
+  }
+
+  @Test
+  void distributeShouldRetryTransientSendError() throws IOException {
+    givenSavedSubscriptions(subscriptionRepository, 1, true);
+    givenGetEmailTemplateResult(emailClient);
+    givenListObjectsResult(storageClient);
+    givenGetObjectsResponse(storageClient);
+    var unavailable = (SesV2Exception) SesV2Exception.builder().statusCode(503).build();
+    when(asyncEmailClient.sendEmail(any(SendEmailRequest.class)))
+        .thenReturn(CompletableFuture.failedFuture(unavailable))
+        .thenReturn(CompletableFuture.completedFuture(SendEmailResponse.builder().build()));
+
+    subscriber.distribute();
+
+    await().until(() -> jobRepository.existsByStatus(DistributionStatus.COMPLETED));
+    assertEquals(1, jobRepository.findAll().get(0).getNumSent());
+    verify(asyncEmailClient, times(2)).sendEmail(any(SendEmailRequest.class));
+    assertEquals(0, mongoTemplate.count(new Query(), DeadLetter.class));
+  }
+
+  @Test
+  void replayDeadLettersShouldResendAndRemoveThem() throws IOException {
+    givenSavedSubscriptions(subscriptionRepository, 1, true);
+    givenGetEmailTemplateResult(emailClient);
+    givenListObjectsResult(storageClient);
+    givenGetObjectsResponse(storageClient);
+    var recipient = recipientOf(subscriptionRepository.findAll().get(0));
+    deadLetters.add("job", recipient, "rejected");
+    deadLetters.add("job", new Recipient("unsubscribed", "gone@email.local", "token"), "rejected");
+    when(asyncEmailClient.sendEmail(any(SendEmailRequest.class)))
+        .thenReturn(CompletableFuture.completedFuture(SendEmailResponse.builder().build()));
+
+    subscriber.replayDeadLetters();
+
+    await().until(() -> deadLetters.count() == 0);
+    verify(asyncEmailClient, times(1)).sendEmail(any(SendEmailRequest.class));
+  }
+
+  @Test
+  void replayDeadLettersShouldNotResendDeliveredContent() throws IOException {
+    givenSavedSubscriptions(subscriptionRepository, 1, true);
+    givenGetEmailTemplateResult(emailClient);
+    givenListObjectsResult(storageClient);
+    givenGetObjectsResponse(storageClient);
+    var recipient = recipientOf(subscriptionRepository.findAll().get(0));
+    deadLetters.add("job", recipient, "rejected");
+    ledger.record(contentFingerprint.current(), "later-job", List.of(recipient.id()));
+
+    subscriber.replayDeadLetters();
+
+    await().until(() -> deadLetters.count() == 0 && !subscriber.isWorking());
+    verify(asyncEmailClient, never()).sendEmail(any(SendEmailRequest.class));
+  }
+
+  @Test
+  void replayDeadLettersShouldNotRunWhileAnotherInstanceHoldsLease() throws IOException {
+    givenSavedSubscriptions(subscriptionRepository, 1, true);
+    givenGetEmailTemplateResult(emailClient);
+    givenListObjectsResult(storageClient);
+    givenGetObjectsResponse(storageClient);
+    deadLetters.add("job", recipientOf(subscriptionRepository.findAll().get(0)), "rejected");
+    givenLeaseHeldByAnotherInstance();
+
+    subscriber.replayDeadLetters();
+
+    verify(asyncEmailClient, after(500).never()).sendEmail(any(SendEmailRequest.class));
+    assertEquals(1, deadLetters.count());
+  }
+
+  @Test
+  void replayDeadLettersShouldNotRunWhileDistributionIsActive() throws IOException {
+    givenSavedSubscriptions(subscriptionRepository, 1, true);
+    givenGetEmailTemplateResult(emailClient);
+    givenListObjectsResult(storageClient);
+    givenGetObjectsResponse(storageClient);
+    deadLetters.add("job", recipientOf(subscriptionRepository.findAll().get(0)), "rejected");
+    var job = new DistributionJob();
+    job.setStatus(DistributionStatus.PAUSED);
+    jobRepository.save(job);
+
+    subscriber.replayDeadLetters();
+
+    verify(asyncEmailClient, after(500).never()).sendEmail(any(SendEmailRequest.class));
+    assertEquals(1, deadLetters.count());
+    jobRepository.deleteAll();
+  }
+
+  @Test
+  void distributeShouldRemoveDeadLetterOfDeliveredRecipient() throws IOException {
+    givenSavedSubscriptions(subscriptionRepository, 1, true);
+    givenGetEmailTemplateResult(emailClient);
+    givenListObjectsResult(storageClient);
+    givenGetObjectsResponse(storageClient);
+    var recipient = recipientOf(subscriptionRepository.findAll().get(0));
+    deadLetters.add("earlier-job", recipient, "rejected");
+    when(asyncEmailClient.sendEmail(any(SendEmailRequest.class)))
+        .thenReturn(CompletableFuture.completedFuture(SendEmailResponse.builder().build()));
+
+    subscriber.distribute();
+
+    await().until(() -> jobRepository.existsByStatus(DistributionStatus.COMPLETED));
+    assertEquals(0, deadLetters.count());
+  }
+
+  private void givenLeaseHeldByAnotherInstance() {
+    var lease = new Lease();
+    lease.setId("distribution");
+    lease.setHolder("another-instance");
+    lease.setExpiresAt(Instant.now().plus(Duration.ofMinutes(1)));
+    mongoTemplate.insert(lease);
+  }
+
+  private static Recipient recipientOf(Subscription subscription) {
+    return new Recipient(
+        subscription.getId(), subscription.getEmail(), subscription.getUserUnsubscribeToken());
+  }
+}
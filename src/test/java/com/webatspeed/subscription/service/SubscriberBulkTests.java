@@ -0,0 +1,154 @@
+package com.webatspeed.subscription.service;
+
+import static com.webatspeed.subscription.service.SubscriptionFixtures.*;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+import com.webatspeed.subscription.DistributionJobRepository;
+import com.webatspeed.subscription.SubscriptionRepository;
+import com.webatspeed.subscription.model.DeadLetter;
+import com.webatspeed.subscription.model.DistributionRange;
+import com.webatspeed.subscription.model.DistributionStatus;
+import com.webatspeed.subscription.model.SendLedgerEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.sesv2.SesV2Client;
+import software.amazon.awssdk.services.sesv2.model.*;
+
+@SpringBootTest(
+    properties = {
+      "email.distribution-mode=bulk",
+      "resilience4j.ratelimiter.instances.ses.limit-for-period=60"
+    })
+public class SubscriberBulkTests {
+
+  @Autowired private Subscriber subscriber;
+
+  @Autowired private SubscriptionRepository subscriptionRepository;
+
+  @Autowired private DistributionJobRepository jobRepository;
+
+  @Autowired private MongoTemplate mongoTemplate;
+
+  @MockBean private SesV2Client emailClient;
+
+  @MockBean private S3Client storageClient;
+
+  @Captor ArgumentCaptor<SendBulkEmailRequest> captor;
+
+  @AfterEach
+  void cleanUp() {
+    subscriptionRepository.deleteAll();
+    await().until(() -> !subscriber.isDistributing());
+    jobRepository.deleteAll();
+    mongoTemplate.remove(DistributionRange.class).all();
+    mongoTemplate.remove(DeadLetter.class).all();
+    mongoTemplate.remove(SendLedgerEntry.class).all();
+  }
+
+  @Test
+  void distributeShouldSendBulkEmailsWithoutAttachments() {
+    var numberOfSubscriptions = FAKER.number().numberBetween(4, 9);
+    givenSavedSubscriptions(subscriptionRepository, numberOfSubscriptions, true);
+    givenGetEmailTemplateResult(emailClient);
+    givenSendBulkEmailResult();
+
+    subscriber.distribute();
+
+    verify(emailClient, timeout(10000)).sendBulkEmail(captor.capture());
+    var request = captor.getValue();
+    assertEquals(numberOfSubscriptions, request.bulkEmailEntries().size());
+    assertEquals("updated-cv", request.defaultContent().template().templateName());
+    assertEquals("test@email.local", request.fromEmailAddress());
+    verify(emailClient, never()).sendEmail(any(SendEmailRequest.class));
+    verifyNoInteractions(storageClient);
+  }
+
+  @Test
+  void distributeShouldFillBulkRequestsUpToMaxDestinations() {
+    var numberOfSubscriptions = Mailer.MAX_BULK_DESTINATIONS + 3;
+    givenSavedSubscriptions(subscriptionRepository, numberOfSubscriptions, true);
+    givenGetEmailTemplateResult(emailClient);
+    givenSendBulkEmailResult();
+
+    subscriber.distribute();
+
+    await().until(() -> jobRepository.existsByStatus(DistributionStatus.COMPLETED));
+    assertEquals(numberOfSubscriptions, jobRepository.findAll().get(0).getNumSent());
+    verify(emailClient, times(2)).sendBulkEmail(captor.capture());
+    var sizes = captor.getAllValues().stream().map(r -> r.bulkEmailEntries().size()).sorted();
+    assertEquals(List.of(3, Mailer.MAX_BULK_DESTINATIONS), sizes.toList());
+  }
+
+  @Test
+  void distributeShouldRetryOnlyTransientlyFailedBulkEntries() {
+    givenSavedSubscriptions(subscriptionRepository, 2, true);
+    givenGetEmailTemplateResult(emailClient);
+    givenSendBulkEmailResults(BulkEmailStatus.SUCCESS, BulkEmailStatus.ACCOUNT_THROTTLED);
+
+    subscriber.distribute();
+
+    await().until(() -> jobRepository.existsByStatus(DistributionStatus.COMPLETED));
+    var job = jobRepository.findAll().get(0);
+    assertEquals(2, job.getNumSent());
+    assertEquals(0, job.getNumFailed());
+    verify(emailClient, times(2)).sendBulkEmail(captor.capture());
+    assertEquals(1, captor.getAllValues().get(1).bulkEmailEntries().size());
+  }
+
+  @Test
+  void distributeShouldDeadLetterPermanentlyFailedBulkEntries() {
+    givenSavedSubscriptions(subscriptionRepository, 2, true);
+    givenGetEmailTemplateResult(emailClient);
+    givenSendBulkEmailResults(BulkEmailStatus.SUCCESS, BulkEmailStatus.MESSAGE_REJECTED);
+
+    subscriber.distribute();
+
+    await().until(() -> jobRepository.existsByStatus(DistributionStatus.COMPLETED));
+    var job = jobRepository.findAll().get(0);
+    assertEquals(1, job.getNumSent());
+    assertEquals(1, job.getNumFailed());
+    verify(emailClient, times(1)).sendBulkEmail(any(SendBulkEmailRequest.class));
+  }
+
+  private void givenSendBulkEmailResults(BulkEmailStatus... firstStatuses) {
+    var numRequests = new AtomicInteger();
+    when(emailClient.sendBulkEmail(any(SendBulkEmailRequest.class)))
+        .thenAnswer(
+            invocation -> {
+              SendBulkEmailRequest request = invocation.getArgument(0);
+              var isFirst = numRequests.getAndIncrement() == 0;
+              var results = new ArrayList<BulkEmailEntryResult>();
+              for (int i = 0; i < request.bulkEmailEntries().size(); i++) {
+                var status = isFirst ? firstStatuses[i] : BulkEmailStatus.SUCCESS;
+                results.add(BulkEmailEntryResult.builder().status(status).error("error").build());
+              }
+              return SendBulkEmailResponse.builder().bulkEmailEntryResults(results).build();
+            });
+  }
+
+  private void givenSendBulkEmailResult() {
+    when(emailClient.sendBulkEmail(any(SendBulkEmailRequest.class)))
+        .thenAnswer(
+            invocation -> {
+              SendBulkEmailRequest request = invocation.getArgument(0);
+              var results =
+                  request.bulkEmailEntries().stream()
+                      .map(e -> BulkEmailEntryResult.builder().status(BulkEmailStatus.SUCCESS))
+                      .map(BulkEmailEntryResult.Builder::build)
+                      .toList();
+              return SendBulkEmailResponse.builder().bulkEmailEntryResults(results).build();
+            });
+  }
+}
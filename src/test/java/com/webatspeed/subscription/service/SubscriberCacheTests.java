@@ -0,0 +1,107 @@
+package com.webatspeed.subscription.service;
+
+import static com.webatspeed.subscription.service.SubscriptionFixtures.*;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+import com.webatspeed.subscription.DistributionJobRepository;
+import com.webatspeed.subscription.SubscriptionRepository;
+import com.webatspeed.subscription.model.DistributionRange;
+import com.webatspeed.subscription.model.DistributionStatus;
+import com.webatspeed.subscription.model.SendLedgerEntry;
+import java.io.IOException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.sesv2.SesV2Client;
+import software.amazon.awssdk.services.sesv2.model.SendEmailRequest;
+
+@SpringBootTest(properties = {"email.attachment-ttl=1h", "email.template-ttl=1h"})
+public class SubscriberCacheTests {
+
+  @Autowired private Subscriber subscriber;
+
+  @Autowired private SubscriptionRepository subscriptionRepository;
+
+  @Autowired private DistributionJobRepository jobRepository;
+
+  @Autowired private MongoTemplate mongoTemplate;
+
+  @MockBean private SesV2Client emailClient;
+
+  @MockBean private S3Client storageClient;
+
+  @AfterEach
+  void cleanUp() {
+    subscriptionRepository.deleteAll();
+    await().until(() -> !subscriber.isDistributing());
+    jobRepository.deleteAll();
+    mongoTemplate.remove(DistributionRange.class).all();
+    mongoTemplate.remove(SendLedgerEntry.class).all();
+  }
+
+  @Test
+  void distributeShouldSendAttachmentChangedWithinTtl() throws IOException {
+    givenSavedSubscriptions(subscriptionRepository, 2, true);
+    givenGetEmailTemplateResult(emailClient, "Updated CV");
+    givenAttachmentWithETag("v1");
+    givenGetObjectsResponse(storageClient);
+    givenDistributed();
+    givenAttachmentWithETag("v2");
+
+    subscriber.distribute();
+
+    thenChangedContentIsSentAgain(2);
+  }
+
+  @Test
+  void distributeShouldSendTemplateChangedWithinTtl() throws IOException {
+    givenSavedSubscriptions(subscriptionRepository, 2, true);
+    givenGetEmailTemplateResult(emailClient, "Updated CV");
+    givenAttachmentWithETag("v1");
+    givenGetObjectsResponse(storageClient);
+    givenDistributed();
+    givenGetEmailTemplateResult(emailClient, "Updated CV, again");
+
+    subscriber.distribute();
+
+    thenChangedContentIsSentAgain(2);
+  }
+
+  private void givenDistributed() {
+    subscriber.distribute();
+    await()
+        .until(
+            () ->
+                jobRepository.existsByStatus(DistributionStatus.COMPLETED)
+                    && !subscriber.isDistributing());
+  }
+
+  private void givenAttachmentWithETag(String eTag) {
+    var objectsResponse =
+        ListObjectsV2Response.builder()
+            .contents(S3Object.builder().key("cv.pdf").eTag(eTag).build())
+            .isTruncated(false)
+            .build();
+
+    when(storageClient.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(objectsResponse);
+  }
+
+  private void thenChangedContentIsSentAgain(int numberOfSubscriptions) {
+    await().until(() -> jobRepository.count() == 2 && !subscriber.isDistributing());
+    verify(emailClient, times(2 * numberOfSubscriptions)).sendEmail(any(SendEmailRequest.class));
+    var rerun = jobRepository.findAll(Sort.by(Sort.Direction.DESC, "createdAt")).get(0);
+    assertEquals(DistributionStatus.COMPLETED, rerun.getStatus());
+    assertEquals(numberOfSubscriptions, rerun.getNumSent());
+    assertEquals(0, rerun.getNumSkipped());
+  }
+}
@@ -1,10 +1,13 @@
 package com.webatspeed.subscription.service;
 
+import com.webatspeed.subscription.DistributionJobRepository;
 import com.webatspeed.subscription.SubscriptionRepository;
+import com.webatspeed.subscription.model.DistributionJob;
+import com.webatspeed.subscription.model.DistributionRange;
+import com.webatspeed.subscription.model.DistributionStatus;
+import com.webatspeed.subscription.model.RangeStatus;
+import com.webatspeed.subscription.model.SendLedgerEntry;
 import com.webatspeed.subscription.model.Subscription;
-import net.datafaker.Faker;
-import org.instancio.Instancio;
-import org.instancio.Select;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.internal.stubbing.answers.AnswersWithDelay;
@@ -12,57 +15,60 @@ import org.mockito.internal.stubbing.answers.Returns;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.http.MediaType;
-import org.springframework.util.ResourceUtils;
-import software.amazon.awssdk.core.ResponseBytes;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.GetObjectResponse;
-import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
-import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.sesv2.SesV2Client;
 import software.amazon.awssdk.services.sesv2.model.*;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
 
+import static com.webatspeed.subscription.service.SubscriptionFixtures.*;
 import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
 public class SubscriberTests {
 
-  private static final Faker FAKER = new Faker();
-
   @Autowired private Subscriber subscriber;
 
   @Autowired private SubscriptionRepository subscriptionRepository;
 
+  @Autowired private DistributionJobRepository jobRepository;
+
+  @Autowired private DistributionRanges ranges;
+
+  @Autowired private MongoTemplate mongoTemplate;
+
+  @Autowired private SendLedger ledger;
+
   @MockBean
   private SesV2Client emailClient;
 
   @MockBean
   private S3Client storageClient;
 
-  private ListObjectsV2Response objectsResponse;
-
   @AfterEach
   void cleanUp() {
     subscriptionRepository.deleteAll();
-    objectsResponse = null;
     await().until(() -> !subscriber.isDistributing());
+    jobRepository.deleteAll();
+    mongoTemplate.remove(DistributionRange.class).all();
+    mongoTemplate.remove(SendLedgerEntry.class).all();
   }
 
   @Test
   void distributeShouldLock() throws IOException {
-    givenSavedSubscriptions(1, true);
+    givenSavedSubscriptions(subscriptionRepository, 1, true);
     givenDistributing();
-    givenGetEmailTemplateResult();
-    givenListObjectsResult();
-    givenGetObjectsResponse();
+    givenGetEmailTemplateResult(emailClient);
+    givenListObjectsResult(storageClient);
+    givenGetObjectsResponse(storageClient);
     givenRenderedEmailTemplateResult();
 
     subscriber.distribute();
@@ -79,7 +85,7 @@ public class SubscriberTests {
 
   @Test
   void distributeShouldNotEmailIfNoSubscriptionConfirmedByOwner() {
-    givenSavedSubscriptions(10, false);
+    givenSavedSubscriptions(subscriptionRepository, 10, false);
 
     subscriber.distribute();
 
@@ -89,10 +95,10 @@ public class SubscriberTests {
   @Test
   void distributeShouldEmailRateLimitedIfSubscriptionConfirmedByOwner() throws IOException {
     var numberOfSubscriptions = FAKER.number().numberBetween(10, 19);
-    givenSavedSubscriptions(numberOfSubscriptions, true);
-    givenGetEmailTemplateResult();
-    givenListObjectsResult();
-    givenGetObjectsResponse();
+    givenSavedSubscriptions(subscriptionRepository, numberOfSubscriptions, true);
+    givenGetEmailTemplateResult(emailClient);
+    givenListObjectsResult(storageClient);
+    givenGetObjectsResponse(storageClient);
     givenRenderedEmailTemplateResult();
 
     var tic = Instant.now();
@@ -107,50 +113,165 @@ public class SubscriberTests {
     assertTrue(duration.minus(minDuration).toMillis() >= 0);
   }
 
-  private void givenSavedSubscriptions(int number, boolean confirmedByOwner) {
-    for (int i = 0; i < number; i++) {
-      var subscription =
-          Instancio.of(Subscription.class)
-              .set(Select.field("id"), null)
-              .set(Select.field("email"), FAKER.internet().emailAddress())
-              .set(Select.field("numTokenErrors"), 0)
-              .set(Select.field("confirmedByOwner"), confirmedByOwner)
-              .set(Select.field("createdAt"), null)
-              .set(Select.field("modifiedAt"), null)
-              .set(Select.field("version"), null)
-              .create();
-      subscriptionRepository.save(subscription);
-    }
+  @Test
+  void distributeShouldCompleteJobWithCheckpointedCounts() throws IOException {
+    var numberOfSubscriptions = FAKER.number().numberBetween(4, 8);
+    givenSavedSubscriptions(subscriptionRepository, numberOfSubscriptions, true);
+    givenGetEmailTemplateResult(emailClient);
+    givenListObjectsResult(storageClient);
+    givenGetObjectsResponse(storageClient);
+
+    subscriber.distribute();
+
+    await().until(() -> jobRepository.existsByStatus(DistributionStatus.COMPLETED));
+    var job = jobRepository.findAll().get(0);
+    assertEquals(numberOfSubscriptions, job.getNumSent());
+    var lastSubscription =
+        subscriptionRepository.findAll(Sort.by(Sort.Direction.DESC, "id")).get(0);
+    var range = ranges.rangesOf(job.getId()).get(0);
+    assertEquals(RangeStatus.COMPLETED, range.getStatus());
+    assertEquals(lastSubscription.getId(), range.getLastSubscriptionId());
   }
 
-  private void givenDistributing() {
-    when(emailClient.sendEmail(any(SendEmailRequest.class)))
-        .thenAnswer(new AnswersWithDelay(500, new Returns(null)));
+  @Test
+  void distributeShouldResumeUnfinishedJobFromCheckpoint() throws IOException {
+    givenSavedSubscriptions(subscriptionRepository, 6, true);
+    givenAnUnfinishedJobAfter(subscriptionRepository.findAll(Sort.by("id")).get(2).getId());
+    givenGetEmailTemplateResult(emailClient);
+    givenListObjectsResult(storageClient);
+    givenGetObjectsResponse(storageClient);
+
+    subscriber.distribute();
+
+    await().until(() -> jobRepository.existsByStatus(DistributionStatus.COMPLETED));
+    verify(emailClient, times(3)).sendEmail(any(SendEmailRequest.class));
+    assertEquals(1, jobRepository.count());
   }
 
-  private void givenGetEmailTemplateResult() {
-    var templateContent = EmailTemplateContent.builder().subject(FAKER.internet().emailSubject()).build();
-    var getEmailTemplateResult = GetEmailTemplateResponse.builder().templateContent(templateContent).build();
+  @Test
+  void distributeShouldNotResendRecipientsInLedgerOnResume() throws IOException {
+    givenSavedSubscriptions(subscriptionRepository, 6, true);
+    var ids = subscriptionRepository.findAll(Sort.by("id")).stream().map(Subscription::getId);
+    givenAnUnfinishedJobAfter(null, "v1");
+    ledger.record("v1", null, ids.limit(2).toList());
+    givenGetEmailTemplateResult(emailClient);
+    givenListObjectsResult(storageClient);
+    givenGetObjectsResponse(storageClient);
+
+    subscriber.distribute();
 
-    when(emailClient.getEmailTemplate(any(GetEmailTemplateRequest.class)))
-        .thenReturn(getEmailTemplateResult);
+    await().until(() -> jobRepository.existsByStatus(DistributionStatus.COMPLETED));
+    verify(emailClient, times(4)).sendEmail(any(SendEmailRequest.class));
+    var job = jobRepository.findAll().get(0);
+    assertEquals(4, job.getNumSent());
+    assertEquals(2, job.getNumSkipped());
   }
 
-  private void givenListObjectsResult() {
-    objectsResponse = Instancio.create(ListObjectsV2Response.class);
+  @Test
+  void distributeShouldSkipRecipientsHoldingCurrentContent() throws IOException {
+    var numberOfSubscriptions = FAKER.number().numberBetween(2, 5);
+    givenSavedSubscriptions(subscriptionRepository, numberOfSubscriptions, true);
+    givenGetEmailTemplateResult(emailClient);
+    givenListObjectsResult(storageClient);
+    givenGetObjectsResponse(storageClient);
+    subscriber.distribute();
+    await()
+        .until(
+            () ->
+                jobRepository.existsByStatus(DistributionStatus.COMPLETED)
+                    && !subscriber.isDistributing());
+    givenSavedSubscriptions(subscriptionRepository, 1, true);
+
+    subscriber.distribute();
 
-    when(storageClient.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(objectsResponse);
+    await().until(() -> jobRepository.count() == 2 && !subscriber.isDistributing());
+    verify(emailClient, times(numberOfSubscriptions + 1)).sendEmail(any(SendEmailRequest.class));
+    var rerun = jobRepository.findAll(Sort.by(Sort.Direction.DESC, "createdAt")).get(0);
+    assertEquals(DistributionStatus.COMPLETED, rerun.getStatus());
+    assertEquals(1, rerun.getNumSent());
+    assertEquals(numberOfSubscriptions, rerun.getNumSkipped());
   }
 
-  private void givenGetObjectsResponse() throws IOException {
-    var file = ResourceUtils.getFile("classpath:static/file.pdf");
-    var bytes = Files.readAllBytes(file.toPath());
-    var response = GetObjectResponse.builder()
-            .contentType(MediaType.APPLICATION_PDF_VALUE)
-            .build();
-    var objectBytes = ResponseBytes.fromByteArray(response, bytes);
+  @Test
+  void distributeShouldShortCircuitUnchangedContent() throws IOException {
+    var numberOfSubscriptions = FAKER.number().numberBetween(2, 5);
+    givenSavedSubscriptions(subscriptionRepository, numberOfSubscriptions, true);
+    givenGetEmailTemplateResult(emailClient);
+    givenListObjectsResult(storageClient);
+    givenGetObjectsResponse(storageClient);
+    subscriber.distribute();
+    await()
+        .until(
+            () ->
+                jobRepository.existsByStatus(DistributionStatus.COMPLETED)
+                    && !subscriber.isDistributing());
 
-    when(storageClient.getObjectAsBytes(any(GetObjectRequest.class))).thenReturn(objectBytes);
+    subscriber.distribute();
+
+    await().until(() -> jobRepository.count() == 2 && !subscriber.isDistributing());
+    verify(emailClient, times(numberOfSubscriptions)).sendEmail(any(SendEmailRequest.class));
+    assertTrue(
+        jobRepository.findAll().stream()
+            .allMatch(job -> job.getStatus() == DistributionStatus.COMPLETED));
+  }
+
+  @Test
+  void distributeShouldPauseOnExhaustedQuota() {
+    givenSavedSubscriptions(subscriptionRepository, 3, true);
+    givenGetEmailTemplateResult(emailClient);
+    var sendQuota =
+        SendQuota.builder().maxSendRate(10.0).max24HourSend(200.0).sentLast24Hours(200.0).build();
+    when(emailClient.getAccount(any(GetAccountRequest.class)))
+        .thenReturn(GetAccountResponse.builder().sendQuota(sendQuota).build());
+
+    subscriber.distribute();
+
+    await().until(() -> jobRepository.existsByStatus(DistributionStatus.PAUSED));
+    verify(emailClient, never()).sendEmail(any(SendEmailRequest.class));
+    await().until(() -> !subscriber.isWorking());
+    jobRepository.deleteAll();
+  }
+
+  @Test
+  void distributeShouldEmailInParallel() throws IOException {
+    givenSavedSubscriptions(subscriptionRepository, 3, true);
+    givenGetEmailTemplateResult(emailClient);
+    givenListObjectsResult(storageClient);
+    givenGetObjectsResponse(storageClient);
+    var sendingThreads = ConcurrentHashMap.<String>newKeySet();
+    when(emailClient.sendEmail(any(SendEmailRequest.class)))
+        .thenAnswer(
+            invocation -> {
+              sendingThreads.add(Thread.currentThread().getName());
+              Thread.sleep(500);
+              return null;
+            });
+
+    subscriber.distribute();
+
+    verify(emailClient, timeout(10000).times(3)).sendEmail(any(SendEmailRequest.class));
+    assertEquals(3, sendingThreads.size());
+    assertTrue(sendingThreads.stream().allMatch(name -> name.startsWith("distribution-")));
+  }
+
+  private void givenAnUnfinishedJobAfter(String lastSubscriptionId) {
+    givenAnUnfinishedJobAfter(lastSubscriptionId, null);
+  }
+
+  private void givenAnUnfinishedJobAfter(String lastSubscriptionId, String contentFingerprint) {
+    var job = new DistributionJob();
+    job.setContentFingerprint(contentFingerprint);
+    job.setStatus(DistributionStatus.FAILED);
+    job.setBatchSize(3);
+    jobRepository.save(job);
+    var range = new DistributionRange(job.getId(), lastSubscriptionId, null);
+    range.setStatus(RangeStatus.FAILED);
+    mongoTemplate.insert(range);
+  }
+
+  private void givenDistributing() {
+    when(emailClient.sendEmail(any(SendEmailRequest.class)))
+        .thenAnswer(new AnswersWithDelay(500, new Returns(null)));
   }
 
   private void givenRenderedEmailTemplateResult() {
@@ -0,0 +1,92 @@
+package com.webatspeed.subscription.service;
+
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.when;
+
+import com.webatspeed.subscription.SubscriptionRepository;
+import com.webatspeed.subscription.model.Subscription;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import net.datafaker.Faker;
+import org.instancio.Instancio;
+import org.instancio.Select;
+import org.springframework.http.MediaType;
+import org.springframework.util.ResourceUtils;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.sesv2.SesV2Client;
+import software.amazon.awssdk.services.sesv2.model.EmailTemplateContent;
+import software.amazon.awssdk.services.sesv2.model.GetEmailTemplateRequest;
+import software.amazon.awssdk.services.sesv2.model.GetEmailTemplateResponse;
+
+final class SubscriptionFixtures {
+
+  static final Faker FAKER = new Faker();
+
+  private SubscriptionFixtures() {}
+
+  static Subscription subscriptionOf(boolean confirmedByOwner) {
+    return Instancio.of(Subscription.class)
+        .set(Select.field("id"), null)
+        .set(Select.field("outbox"), new ArrayList<>())
+        .set(Select.field("email"), FAKER.internet().emailAddress())
+        .set(Select.field("numTokenErrors"), 0)
+        .set(Select.field("confirmedByOwner"), confirmedByOwner)
+        .set(Select.field("createdAt"), null)
+        .set(Select.field("modifiedAt"), null)
+        .set(Select.field("version"), null)
+        .create();
+  }
+
+  static List<String> givenSavedSubscriptions(
+      SubscriptionRepository repository, int number, boolean confirmedByOwner) {
+    var ids = new ArrayList<String>();
+    for (int i = 0; i < number; i++) {
+      ids.add(repository.save(subscriptionOf(confirmedByOwner)).getId());
+    }
+
+    return ids;
+  }
+
+  static void givenGetEmailTemplateResult(SesV2Client emailClient) {
+    givenGetEmailTemplateResult(emailClient, FAKER.internet().emailSubject());
+  }
+
+  static void givenGetEmailTemplateResult(SesV2Client emailClient, String subject) {
+    var templateContent =
+        EmailTemplateContent.builder()
+            .subject(subject)
+            .text("Content1 {{username}}")
+            .html("<p>Content2 {{token}}</p>")
+            .build();
+    var getEmailTemplateResult =
+        GetEmailTemplateResponse.builder().templateContent(templateContent).build();
+
+    when(emailClient.getEmailTemplate(any(GetEmailTemplateRequest.class)))
+        .thenReturn(getEmailTemplateResult);
+  }
+
+  static ListObjectsV2Response givenListObjectsResult(S3Client storageClient) {
+    var objectsResponse =
+        Instancio.of(ListObjectsV2Response.class).set(Select.field("isTruncated"), false).create();
+
+    when(storageClient.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(objectsResponse);
+
+    return objectsResponse;
+  }
+
+  static void givenGetObjectsResponse(S3Client storageClient) throws IOException {
+    var file = ResourceUtils.getFile("classpath:static/file.pdf");
+    var bytes = Files.readAllBytes(file.toPath());
+    var response = GetObjectResponse.builder().contentType(MediaType.APPLICATION_PDF_VALUE).build();
+    var objectBytes = ResponseBytes.fromByteArray(response, bytes);
+
+    when(storageClient.getObjectAsBytes(any(GetObjectRequest.class))).thenReturn(objectBytes);
+  }
+}
@@ -0,0 +1,82 @@
+package com.webatspeed.subscription.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SubscriptionMetricsTests {
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private SubscriptionMetrics metrics;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    metrics = new SubscriptionMetrics(meterRegistry);
+  }
+
+  @Test
+  void onProgressShouldReportRecipientsByState() {
+    metrics.onProgress(7, 2, 1, 20);
+
+    assertEquals(7.0, recipients("sent"));
+    assertEquals(2.0, recipients("failed"));
+    assertEquals(1.0, recipients("skipped"));
+    assertEquals(10.0, recipients("remaining"));
+  }
+
+  @Test
+  void onProgressShouldNotReportNegativeRemainder() {
+    metrics.onProgress(15, 0, 0, 10);
+
+    assertEquals(0.0, recipients("remaining"));
+  }
+
+  @Test
+  void onTokenFailureShouldCountLockoutsSeparately() {
+    metrics.onTokenFailure("update", false);
+    metrics.onTokenFailure("update", true);
+    metrics.onTokenFailure("delete", false);
+
+    assertEquals(2.0, counter("subscription.token.failures", "update"));
+    assertEquals(1.0, counter("subscription.token.failures", "delete"));
+    assertEquals(1.0, counter("subscription.token.lockouts", "update"));
+    assertNull(
+        meterRegistry
+            .find("subscription.token.lockouts")
+            .tag("operation", "delete")
+            .counter());
+  }
+
+  @Test
+  void timeRecipientPageShouldRecordPageReads() {
+    var page = metrics.timeRecipientPage(() -> "page");
+
+    assertEquals("page", page);
+    assertEquals(1, meterRegistry.get("distribution.recipient.page").timer().count());
+  }
+
+  @Test
+  void timeSendShouldRecordEachRecipientOnCompletion() {
+    var send = new CompletableFuture<String>();
+
+    var timed = metrics.timeSend(3, () -> send);
+
+    assertEquals(0, meterRegistry.get("distribution.send").timer().count());
+    send.completeExceptionally(new IllegalStateException("failed"));
+    assertTrue(timed.isCompletedExceptionally());
+    assertEquals(3, meterRegistry.get("distribution.send").timer().count());
+  }
+
+  private double recipients(String state) {
+    return meterRegistry.get("distribution.recipients").tag("state", state).gauge().value();
+  }
+
+  private double counter(String name, String operation) {
+    return meterRegistry.get(name).tag("operation", operation).counter().count();
+  }
+}
@@ -0,0 +1,79 @@
+package com.webatspeed.subscription.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.webatspeed.subscription.SubscriptionMapper;
+import com.webatspeed.subscription.config.MailConfiguration;
+import java.time.Duration;
+import net.datafaker.Faker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.sesv2.SesV2Client;
+import software.amazon.awssdk.services.sesv2.model.EmailTemplateContent;
+import software.amazon.awssdk.services.sesv2.model.GetEmailTemplateRequest;
+import software.amazon.awssdk.services.sesv2.model.GetEmailTemplateResponse;
+
+public class TemplateCacheTests {
+
+  private static final Faker FAKER = new Faker();
+
+  private SesV2Client emailClient;
+
+  private MailConfiguration mailConfiguration;
+
+  private TemplateCache templateCache;
+
+  @BeforeEach
+  void setUp() {
+    emailClient = mock(SesV2Client.class);
+    mailConfiguration = new MailConfiguration();
+    mailConfiguration.setTemplateTtl(Duration.ofMinutes(10));
+    templateCache = new TemplateCache(emailClient, mailConfiguration, new SubscriptionMapper());
+  }
+
+  @Test
+  void contentOfShouldLoadTemplateOncePerName() {
+    var subject = FAKER.internet().emailSubject();
+    givenGetEmailTemplateResult(subject);
+
+    assertEquals(subject, templateCache.contentOf(TemplateName.UPDATED_CV).subject());
+    assertEquals(subject, templateCache.contentOf(TemplateName.UPDATED_CV).subject());
+    templateCache.contentOf(TemplateName.FIRST_CV);
+
+    verify(emailClient, times(2)).getEmailTemplate(any(GetEmailTemplateRequest.class));
+  }
+
+  @Test
+  void contentOfShouldReloadExpiredTemplates() {
+    mailConfiguration.setTemplateTtl(Duration.ZERO);
+    givenGetEmailTemplateResult(FAKER.internet().emailSubject());
+
+    templateCache.contentOf(TemplateName.UPDATED_CV);
+    templateCache.contentOf(TemplateName.UPDATED_CV);
+
+    verify(emailClient, times(2)).getEmailTemplate(any(GetEmailTemplateRequest.class));
+  }
+
+  @Test
+  void invalidateShouldReloadTemplates() {
+    givenGetEmailTemplateResult(FAKER.internet().emailSubject());
+    templateCache.contentOf(TemplateName.UPDATED_CV);
+
+    var subject = FAKER.internet().emailSubject();
+    givenGetEmailTemplateResult(subject);
+    templateCache.invalidate();
+
+    assertEquals(subject, templateCache.contentOf(TemplateName.UPDATED_CV).subject());
+    verify(emailClient, times(2)).getEmailTemplate(any(GetEmailTemplateRequest.class));
+  }
+
+  private void givenGetEmailTemplateResult(String subject) {
+    var templateContent = EmailTemplateContent.builder().subject(subject).build();
+    var getEmailTemplateResult =
+        GetEmailTemplateResponse.builder().templateContent(templateContent).build();
+
+    when(emailClient.getEmailTemplate(any(GetEmailTemplateRequest.class)))
+        .thenReturn(getEmailTemplateResult);
+  }
+}
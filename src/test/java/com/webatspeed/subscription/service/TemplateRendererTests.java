@@ -0,0 +1,113 @@
+package com.webatspeed.subscription.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.webatspeed.subscription.config.MailConfiguration;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.sesv2.model.EmailTemplateContent;
+
+public class TemplateRendererTests {
+
+  private TemplateCache templateCache;
+
+  private MailConfiguration mailConfiguration;
+
+  private TemplateRenderer templateRenderer;
+
+  @BeforeEach
+  void setUp() {
+    templateCache = mock(TemplateCache.class);
+    mailConfiguration = new MailConfiguration();
+    mailConfiguration.setTemplateRendering(TemplateRendering.LOCAL);
+    templateRenderer = new TemplateRenderer(templateCache, mailConfiguration);
+  }
+
+  @Test
+  void compiledTemplateShouldSubstituteVariables() {
+    var template = CompiledTemplate.compile("Hi {{username}}, use {{ token }}.").orElseThrow();
+
+    var rendered = template.render(Map.of("username", "Jane", "token", "abc"));
+
+    assertEquals("Hi Jane, use abc.", rendered);
+  }
+
+  @Test
+  void compiledTemplateShouldSubstituteUsernameAndToken() {
+    var template =
+        CompiledTemplate.compile("Hi {{username}}, use {{{ token }}}{{other}}.").orElseThrow();
+
+    var rendered = template.render("<Jane>", "abc");
+
+    assertEquals("Hi &lt;Jane&gt;, use abc.", rendered);
+  }
+
+  @Test
+  void compiledTemplateShouldEscapeDoubleAndNotTripleStash() {
+    var template = CompiledTemplate.compile("{{value}}|{{{value}}}").orElseThrow();
+
+    var rendered = template.render(Map.of("value", "<a href=\"x\">&'`"));
+
+    assertEquals(
+        "&lt;a href&#x3D;&quot;x&quot;&gt;&amp;&#x27;&#x60;|<a href=\"x\">&'`", rendered);
+  }
+
+  @Test
+  void compiledTemplateShouldRenderMissingVariablesEmpty() {
+    var template = CompiledTemplate.compile("[{{missing}}]").orElseThrow();
+
+    assertEquals("[]", template.render(Map.of()));
+  }
+
+  @Test
+  void compiledTemplateShouldRejectUnsupportedSyntax() {
+    assertTrue(CompiledTemplate.compile("{{#if token}}x{{/if}}").isEmpty());
+    assertTrue(CompiledTemplate.compile("{{user.name}}").isEmpty());
+    assertTrue(CompiledTemplate.compile("{{> partial}}").isEmpty());
+    assertTrue(CompiledTemplate.compile("{{unclosed").isEmpty());
+  }
+
+  @Test
+  void renderShouldRenderAllParts() {
+    givenTemplateContent("Subject {{username}}", "Text {{token}}", "<p>{{token}}</p>");
+
+    var rendered = templateRenderer.render(TemplateName.UPDATED_CV, "jane", "abc").orElseThrow();
+
+    assertEquals("Subject jane", rendered.subject());
+    assertEquals("Text abc", rendered.text());
+    assertEquals("<p>abc</p>", rendered.html());
+  }
+
+  @Test
+  void renderShouldLeaveMissingPartsEmpty() {
+    givenTemplateContent("Subject", null, "<p>{{token}}</p>");
+
+    var rendered = templateRenderer.render(TemplateName.UPDATED_CV, "jane", "abc").orElseThrow();
+
+    assertNull(rendered.text());
+    assertEquals("<p>abc</p>", rendered.html());
+  }
+
+  @Test
+  void renderShouldFallBackOnUnsupportedSyntax() {
+    givenTemplateContent("Subject", "{{#each items}}{{this}}{{/each}}", "<p></p>");
+
+    assertTrue(templateRenderer.render(TemplateName.UPDATED_CV, "jane", "abc").isEmpty());
+  }
+
+  @Test
+  void renderShouldFallBackInSesMode() {
+    mailConfiguration.setTemplateRendering(TemplateRendering.SES);
+
+    assertTrue(templateRenderer.render(TemplateName.UPDATED_CV, "jane", "abc").isEmpty());
+    verifyNoInteractions(templateCache);
+  }
+
+  private void givenTemplateContent(String subject, String text, String html) {
+    var content = EmailTemplateContent.builder().subject(subject).text(text).html(html).build();
+
+    when(templateCache.contentOf(TemplateName.UPDATED_CV)).thenReturn(content);
+  }
+}